@@ -0,0 +1,74 @@
+package adventofcode.y2018;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Day1Benchmark {
+
+  @Param({"1", "10", "100", "1000"})
+  private int scale;
+
+  private Path file;
+  private List<String> input;
+
+  @Setup
+  public void setup() throws IOException {
+    input = ScaledInputs.forDay("1", scale);
+    file = Files.createTempFile("day-1", ".txt");
+    Generators.write(input.stream(), file);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete(file);
+  }
+
+  @Benchmark
+  public String part1() {
+    return new Day1Part1(input).solve();
+  }
+
+  /**
+   * Scaling with cores: -jvmArgs -Djava.util.concurrent.ForkJoinPool.common.parallelism=N
+   */
+  @Benchmark
+  public String part1Parallel() {
+    return Day1Part1.solveParallel(file);
+  }
+
+  @Benchmark
+  public String part2(final Part2Engine state) {
+    return new Day1Part2(input).solve(state.engine);
+  }
+
+  /**
+   * Compare allocation rates with {@code -prof gc}.
+   */
+  @State(Scope.Benchmark)
+  public static class Part2Engine {
+    @Param
+    private Day1Part2.Engine engine;
+  }
+}
@@ -0,0 +1,57 @@
+package adventofcode.y2018;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Day2Benchmark {
+
+  @Param({"1", "10", "100", "1000"})
+  private int scale;
+
+  private List<String> input;
+
+  @Setup
+  public void setup() {
+    input = ScaledInputs.forDay("2", scale);
+  }
+
+  @Benchmark
+  public String part1(final Part1Engine state) {
+    return new Day2Part1(input).solve(state.engine);
+  }
+
+  @Benchmark
+  public String part2(final Part2Engine state) {
+    return new Day2Part2(input).solve(state.engine);
+  }
+
+  @State(Scope.Benchmark)
+  public static class Part1Engine {
+    @Param
+    private Day2Part1.Engine engine;
+  }
+
+  @State(Scope.Benchmark)
+  public static class Part2Engine {
+    @Param
+    private Day2Part2.Engine engine;
+  }
+}
@@ -0,0 +1,63 @@
+package adventofcode.y2018;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Day5Benchmark {
+
+  @Param({"1", "10", "100", "1000"})
+  private int scale;
+
+  private Day5 day5;
+  private List<String> input;
+  private byte[] units;
+
+  @Setup
+  public void setup() {
+    input = ScaledInputs.forDay("5", scale);
+    day5 = new Day5(input);
+    units = input.get(0).getBytes(StandardCharsets.US_ASCII);
+  }
+
+  @Benchmark
+  public long reduceStream() {
+    return new PolymerStream().reduce(Channels.newChannel(new ByteArrayInputStream(units)));
+  }
+
+  @Benchmark
+  public String reducePolymer(final ReduceEngine state) {
+    return day5.reducePolymer(input.get(0), state.engine);
+  }
+
+  @Benchmark
+  public String part2(final ReduceEngine state) {
+    return day5.part2(state.engine);
+  }
+
+  @State(Scope.Benchmark)
+  public static class ReduceEngine {
+    @Param
+    private Day5.Engine engine;
+  }
+}
@@ -0,0 +1,58 @@
+package adventofcode.y2018;
+
+import com.google.common.collect.Range;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Day6Benchmark {
+
+  @Param({"1", "10", "100", "1000"})
+  private int scale;
+
+  private List<String> input;
+
+  @Setup
+  public void setup() {
+    input = ScaledInputs.forDay("6", scale);
+  }
+
+  @Benchmark
+  public String part1(final Part1Engine state) {
+    return new Day6(input).part1(state.engine);
+  }
+
+  @Benchmark
+  public String part2(final Part2Engine state) {
+    return new Day6(input).part2(Range.lessThan(10_000), state.engine);
+  }
+
+  @State(Scope.Benchmark)
+  public static class Part1Engine {
+    @Param
+    private Day6.AreaEngine engine;
+  }
+
+  @State(Scope.Benchmark)
+  public static class Part2Engine {
+    @Param
+    private Day6.RegionEngine engine;
+  }
+}
@@ -0,0 +1,76 @@
+package adventofcode.y2018;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Integer.parseInt;
+import static java.util.Collections.nCopies;
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Inputs of the same shape as the bundled ones, {@code scale} times bigger.
+ * Scale 1 is the bundled input itself, bigger scales come from {@link Generators} with a fixed seed.
+ */
+final class ScaledInputs {
+
+  /**
+   * About as many passes as the bundled input needs before its first repeat, as long as the frequencies
+   * simulated up to the repeat stay within {@link #MAX_FREQUENCY_CHANGES}.
+   */
+  private static final int FREQUENCY_PASSES = 140;
+  private static final int MAX_FREQUENCY_CHANGES = 1 << 24;
+  private static final Pattern MARBLES = Pattern.compile("worth (\\d+) points");
+  private static final long SEED = 2018;
+
+  private ScaledInputs() {
+  }
+
+  static List<String> forDay(final String day, final int scale) {
+    checkArgument(scale > 0, "Scale must be positive: %s", scale);
+    List<String> bundled = Inputs.forDay(day);
+    if (scale == 1) {
+      return bundled;
+    }
+    int lines = bundled.size() * scale;
+
+    switch (day) {
+      case "1":
+        int passes = Math.max(1, Math.min(FREQUENCY_PASSES, MAX_FREQUENCY_CHANGES / lines));
+        return Generators.frequencies(SEED, lines, passes).collect(toList());
+      case "2":
+        return Generators.boxIds(SEED, lines, bundled.get(0).length()).collect(toList());
+      case "3":
+        return Generators.claims(SEED, lines, 1000, 30).collect(toList());
+      case "4":
+        int nights = (int) bundled.stream().filter(line -> line.contains("Guard")).count() * scale;
+        return Generators.guardLogs(SEED, nights, 20).collect(toList());
+      case "5":
+        StringBuilder polymer = new StringBuilder();
+        Generators.polymer(SEED, (long) bundled.get(0).length() * scale, polymer);
+        return ImmutableList.of(polymer.toString());
+      case "6":
+        return Generators.coordinates(SEED, lines, 400).collect(toList());
+      case "7":
+        // steps are single letters: the graph cannot grow, only its edge list
+        return ImmutableList.copyOf(Iterables.concat(nCopies(scale, bundled)));
+      case "8":
+        StringBuilder tree = new StringBuilder();
+        Generators.licenseTree(SEED, Generators.licenseTreeNodes(bundled.get(0)) * scale, tree);
+        return ImmutableList.of(tree.toString());
+      case "9":
+        Matcher marbles = MARBLES.matcher(bundled.get(0));
+        checkArgument(marbles.find(),
+                      "Input [%s] does not match required pattern (%s)", bundled.get(0), MARBLES.pattern());
+        return ImmutableList.of(Generators.game(SEED, parseInt(marbles.group(1)) * scale));
+      case "10":
+        return Generators.particles(SEED, lines, 10_000).collect(toList());
+      default:
+        throw new IllegalArgumentException("Unknown day: " + day);
+    }
+  }
+}
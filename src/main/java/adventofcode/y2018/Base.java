@@ -25,4 +25,11 @@ public abstract class Base {
     return strings.stream().map(Integer::parseInt).collect(toList());
   }
 
+  /**
+   * Same as {@link #asInts(List)} without boxing.
+   */
+  protected int[] asIntArray(final List<String> strings) {
+    return NumberParser.parseInts(strings);
+  }
+
 }
@@ -0,0 +1,224 @@
+package adventofcode.y2018;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import adventofcode.y2018.Day3.Square;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Day 3 fabric fed one claim at a time: claims can be added and removed in any order,
+ * the overlap area and the intact claims are kept up to date along the way.
+ * <p>
+ * Every square inch holds the number of claims covering it and the sum of their IDs: when a single claim is left
+ * on it, the sum is its ID. An update costs O(area of the claim), queries are O(1).
+ */
+public final class ClaimFabric {
+
+  @Nested
+  public static class ClaimFabricTest {
+
+    @Test
+    public void example() {
+      ClaimFabric fabric = new ClaimFabric();
+      fabric.addClaim("#1 @ 1,3: 4x4");
+      fabric.addClaim("#2 @ 3,1: 4x4");
+      assertThat(fabric.overlapArea()).isEqualTo(4);
+      assertThat(fabric.intactClaims()).isEmpty();
+
+      fabric.addClaim("#3 @ 5,5: 2x2");
+      assertThat(fabric.overlapArea()).isEqualTo(4);
+      assertThat(fabric.intactClaims()).containsExactly(3);
+
+      fabric.removeClaim(2);
+      assertThat(fabric.overlapArea()).isEqualTo(0);
+      assertThat(fabric.intactClaims()).containsExactlyInAnyOrder(1, 3);
+    }
+
+    @Test
+    public void stackedClaims() {
+      ClaimFabric fabric = new ClaimFabric();
+      fabric.addClaim("#1 @ 0,0: 2x2");
+      fabric.addClaim("#2 @ 0,0: 2x2");
+      fabric.addClaim("#3 @ 0,0: 1x1");
+      assertThat(fabric.overlapArea()).isEqualTo(4);
+
+      fabric.removeClaim(1);
+      assertThat(fabric.overlapArea()).isEqualTo(1);
+      assertThat(fabric.intactClaims()).isEmpty();
+
+      fabric.removeClaim(3);
+      assertThat(fabric.overlapArea()).isEqualTo(0);
+      assertThat(fabric.intactClaims()).containsExactly(2);
+    }
+
+    @Test
+    public void matchesBatchSolution() {
+      List<String> claims = Generators.claims(7, 300, 100, 30).collect(toList());
+      ClaimFabric fabric = new ClaimFabric();
+      claims.forEach(fabric::addClaim);
+      assertThat(String.valueOf(fabric.overlapArea())).isEqualTo(new Day3(claims).part1());
+      assertThat(fabric.intactClaims()).extracting(String::valueOf).containsExactly(new Day3(claims).part2());
+
+      Random random = new Random(7);
+      List<String> remaining = new ArrayList<>(claims);
+      while (remaining.size() > 1) {
+        Square removed = Day3.parse(remaining.remove(random.nextInt(remaining.size())));
+        fabric.removeClaim(removed.getId());
+        assertThat(String.valueOf(fabric.overlapArea())).isEqualTo(new Day3(remaining).part1());
+        assertThat(fabric.intactClaims()).hasSize(intactCount(remaining));
+      }
+    }
+
+    @Test
+    public void duplicateAndUnknownIds() {
+      ClaimFabric fabric = new ClaimFabric();
+      fabric.addClaim("#1 @ 1,3: 4x4");
+      assertThatThrownBy(() -> fabric.addClaim("#1 @ 0,0: 1x1")).isInstanceOf(IllegalArgumentException.class);
+      assertThatThrownBy(() -> fabric.removeClaim(2)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static int intactCount(final List<String> claims) {
+      List<Square> squares = claims.stream().map(Day3::parse).collect(toList());
+      Day3.ClaimIndex index = new Day3.ClaimIndex(squares);
+      return (int) squares.stream().filter(index::isIntact).count();
+    }
+  }
+
+  private static final int INITIAL_SIDE = 64;
+  private static final long MAX_CELLS = 1 << 28;
+
+  private final Map<Integer, Claim> claims = new HashMap<>();
+  private final Set<Integer> intact = new LinkedHashSet<>();
+  private int columns;
+  private int[] counts;
+  private int[] idSums;
+  private long overlapArea;
+  private int rows;
+
+  public ClaimFabric() {
+    allocate(INITIAL_SIDE, INITIAL_SIDE);
+  }
+
+  /**
+   * Adds a claim in the puzzle format, like {@code #123 @ 3,2: 5x4}.
+   */
+  public void addClaim(final String line) {
+    addClaim(Day3.parse(line));
+  }
+
+  void addClaim(final Square square) {
+    checkArgument(!claims.containsKey(square.getId()), "Claim #%s is already on the fabric", square.getId());
+    ensureCapacity(square.getLeft() + square.getWidth(), square.getTop() + square.getHeight());
+    Claim claim = new Claim(square);
+    claims.put(square.getId(), claim);
+
+    for (int row = square.getTop(); row <= square.getBottom(); row++) {
+      for (int cell = row * columns + square.getLeft(), end = cell + square.getWidth(); cell < end; cell++) {
+        int count = counts[cell]++;
+        if (count == 1) {
+          overlapArea++;
+          claims.get(idSums[cell]).overlap(1);
+        }
+        if (count > 0) {
+          claim.overlappedCells++;
+        }
+        idSums[cell] += square.getId();
+      }
+    }
+    if (claim.overlappedCells == 0) {
+      intact.add(square.getId());
+    }
+  }
+
+  public void removeClaim(final int id) {
+    Claim claim = claims.remove(id);
+    checkArgument(claim != null, "Claim #%s is not on the fabric", id);
+    intact.remove(id);
+
+    Square square = claim.square;
+    for (int row = square.getTop(); row <= square.getBottom(); row++) {
+      for (int cell = row * columns + square.getLeft(), end = cell + square.getWidth(); cell < end; cell++) {
+        idSums[cell] -= id;
+        if (--counts[cell] == 1) {
+          overlapArea--;
+          claims.get(idSums[cell]).overlap(-1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Square inches within two or more claims.
+   */
+  public long overlapArea() {
+    return overlapArea;
+  }
+
+  /**
+   * IDs of the claims not overlapping any other claim, in the order they last became intact. Live read-only view.
+   */
+  public Set<Integer> intactClaims() {
+    return Collections.unmodifiableSet(intact);
+  }
+
+  private void allocate(final int columns, final int rows) {
+    this.columns = columns;
+    this.rows = rows;
+    this.counts = new int[columns * rows];
+    this.idSums = new int[columns * rows];
+  }
+
+  /**
+   * Grows the grid, at least doubling the side that is too short, so that it holds [0, right) x [0, bottom).
+   */
+  private void ensureCapacity(final int right, final int bottom) {
+    if (right <= columns && bottom <= rows) {
+      return;
+    }
+    int newColumns = right <= columns ? columns : (int) Math.max(right, Math.min(Integer.MAX_VALUE, 2L * columns));
+    int newRows = bottom <= rows ? rows : (int) Math.max(bottom, Math.min(Integer.MAX_VALUE, 2L * rows));
+    checkArgument((long) newColumns * newRows <= MAX_CELLS, "Fabric of %sx%s inches is too big", newColumns, newRows);
+
+    int oldColumns = columns;
+    int oldRows = rows;
+    int[] oldCounts = counts;
+    int[] oldIdSums = idSums;
+    allocate(newColumns, newRows);
+    for (int row = 0; row < oldRows; row++) {
+      System.arraycopy(oldCounts, row * oldColumns, counts, row * columns, oldColumns);
+      System.arraycopy(oldIdSums, row * oldColumns, idSums, row * columns, oldColumns);
+    }
+  }
+
+  private final class Claim {
+    private final Square square;
+    private int overlappedCells;
+
+    Claim(final Square square) {
+      this.square = square;
+    }
+
+    void overlap(final int delta) {
+      boolean wasIntact = overlappedCells == 0;
+      overlappedCells += delta;
+      if (overlappedCells == 0) {
+        intact.add(square.getId());
+      } else if (wasIntact) {
+        intact.remove(square.getId());
+      }
+    }
+  }
+}
@@ -342,7 +342,7 @@ public class Day10 {
     }
   }
 
-  private int solve() {
+  int solve() {
     int minDistance = computeDistance();
     int distance;
 
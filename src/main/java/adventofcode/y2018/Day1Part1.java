@@ -3,12 +3,17 @@ package adventofcode.y2018;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
+import lombok.Value;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -64,17 +69,75 @@ public class Day1Part1 extends Base {
       assertThat(new Day1Part1(parseCsv(input)).solve()).isEqualTo(expected);
     }
 
+    @Test
+    public void parallelSolution() throws IOException {
+      Path file = Files.createTempFile("day-1", ".txt");
+      file.toFile().deleteOnExit();
+      Generators.write(Generators.frequencies(42, 1_000_000), file);
+
+      String expected = new Day1Part1(Files.readAllLines(file)).solve();
+      assertThat(solveParallel(file)).isEqualTo(expected);
+    }
+
+    @Test
+    public void sumBeyondIntRange() throws IOException {
+      Path file = Files.createTempFile("day-1", ".txt");
+      file.toFile().deleteOnExit();
+      Generators.write(Stream.of("+2000000000", "+2000000000", "-1", "+2147483647"), file);
+
+      String expected = String.valueOf(2_000_000_000L + 2_000_000_000L - 1 + Integer.MAX_VALUE);
+      assertThat(new Day1Part1(Files.readAllLines(file)).solve()).isEqualTo(expected);
+      assertThat(solveParallel(file)).isEqualTo(expected);
+    }
+
   }
 
 
+  private static final int CHUNKS_PER_CORE = 4;
+
   Day1Part1(final List<String> inputLines) {
     super(inputLines);
   }
 
   public String solve() {
-    return String.valueOf(inputLines.stream()
-                                    .mapToInt(Integer::parseInt)
-                                    .sum());
+    return String.valueOf(Arrays.stream(asIntArray(inputLines)).asLongStream().sum());
 
   }
+
+  /**
+   * Sums a frequency file of any size: the file is mapped and split into newline aligned chunks,
+   * which are parsed straight from bytes and summed in parallel on the common ForkJoin pool.
+   */
+  static String solveParallel(final Path path) {
+    try (MappedInput input = Inputs.mapped(path)) {
+      long start = System.nanoTime();
+      Sum result = input.split(Runtime.getRuntime().availableProcessors() * CHUNKS_PER_CORE)
+                        .parallelStream()
+                        .map(chunk -> sum(input, chunk))
+                        .reduce(new Sum(0, 0), Sum::plus);
+      long elapsed = Math.max(1, System.nanoTime() - start);
+      System.out.printf("Summed %d lines in %d ms (%.0f lines/s)%n",
+                        result.getLines(), elapsed / 1_000_000, result.getLines() * 1e9 / elapsed);
+      return String.valueOf(result.getTotal());
+    }
+  }
+
+  private static Sum sum(final MappedInput input, final MappedInput.Chunk chunk) {
+    long[] linesAndTotal = new long[2];
+    input.forEachLine(chunk, line -> {
+      linesAndTotal[0]++;
+      linesAndTotal[1] += NumberParser.parseInt(line);
+    });
+    return new Sum(linesAndTotal[0], linesAndTotal[1]);
+  }
+
+  @Value
+  private static class Sum {
+    private long lines;
+    private long total;
+
+    Sum plus(final Sum other) {
+      return new Sum(lines + other.lines, total + other.total);
+    }
+  }
 }
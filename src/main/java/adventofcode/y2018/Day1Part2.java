@@ -1,7 +1,13 @@
 package adventofcode.y2018;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
 import org.junit.jupiter.api.Nested;
@@ -10,6 +16,8 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -59,9 +67,57 @@ public class Day1Part2 extends Base {
     @ParameterizedTest
     @MethodSource
     public void examples(final String input, String expected) {
-      assertThat(new Day1Part2(parseCsv(input)).solve()).isEqualTo(expected);
+      for (Engine engine : Engine.values()) {
+        assertThat(new Day1Part2(parseCsv(input)).solve(engine)).as(engine.name()).isEqualTo(expected);
+      }
+    }
+
+    @Test
+    public void analyticalMatchesSimulation() {
+      for (long seed = 0; seed < 200; seed++) {
+        List<String> input = Generators.frequencies(seed, 10 + (int) seed % 50).collect(toList());
+        String expected;
+        try {
+          expected = new Day1Part2(input).solve(Engine.ANALYTICAL);
+        } catch (IllegalStateException e) {
+          // no repeat at all, the simulation would never end
+          continue;
+        }
+        assertThat(new Day1Part2(input).solve(Engine.INT_SET)).as("seed %s", seed).isEqualTo(expected);
+      }
+    }
+
+    @Test
+    public void emptyInput() {
+      for (Engine engine : Engine.values()) {
+        assertThatThrownBy(() -> new Day1Part2(emptyList()).solve(engine)).as(engine.name())
+                                                                        .isInstanceOf(IllegalArgumentException.class);
+      }
     }
 
+    @Test
+    public void analyticalWithManyPasses() {
+      // the drift is 1: 10^7 passes before index 0 reaches the frequency of index 1
+      assertThat(new Day1Part2(parseCsv("+10000000, -9999999")).solve(Engine.ANALYTICAL)).isEqualTo("10000000");
+      assertThat(new Day1Part2(parseCsv("-10000000, +9999999")).solve(Engine.ANALYTICAL)).isEqualTo("-10000000");
+    }
+
+  }
+
+  public enum Engine {
+    /**
+     * Boxed sums in a HashSet.
+     */
+    HASH_SET,
+    /**
+     * Primitive sums in an open addressing IntHashSet.
+     */
+    INT_SET,
+    /**
+     * No simulation: every pass is the first one shifted by the drift, so repeats are found among the
+     * prefix sums of the first pass that share the same residue modulo the drift. O(n log n) whatever the passes.
+     */
+    ANALYTICAL
   }
 
   Day1Part2(final List<String> inputLines) {
@@ -69,6 +125,25 @@ public class Day1Part2 extends Base {
   }
 
   public String solve() {
+    return solve(Engine.INT_SET);
+  }
+
+  String solve(final Engine engine) {
+    // with no changes at all, the frequency never repeats and the simulations would loop forever
+    checkArgument(!inputLines.isEmpty(), "No frequency changes in the input");
+    switch (engine) {
+      case HASH_SET:
+        return String.valueOf(solveWithHashSet());
+      case INT_SET:
+        return String.valueOf(solveWithIntSet());
+      case ANALYTICAL:
+        return String.valueOf(solveAnalytically());
+      default:
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+  }
+
+  private int solveWithHashSet() {
     List<Integer> ints = asInts(inputLines);
     int i = 0;
     int sum = 0;
@@ -76,11 +151,78 @@ public class Day1Part2 extends Base {
     while (true) {
       sum += ints.get(i % ints.size());
       if (sums.contains(sum)) {
-        return String.valueOf(sum);
+        return sum;
       }
       sums.add(sum);
       i++;
     }
   }
 
+  private int solveWithIntSet() {
+    int[] ints = asIntArray(inputLines);
+    int sum = 0;
+    IntHashSet sums = new IntHashSet();
+    sums.add(sum);
+    while (true) {
+      for (int value : ints) {
+        sum += value;
+        if (!sums.add(sum)) {
+          return sum;
+        }
+      }
+    }
+  }
+
+  /**
+   * The frequency at time t is (t / n) * drift + prefix[t % n], with prefix[0] = 0.
+   * A repeat inside the first pass is found directly. Otherwise prefix[i] reaches prefix[j] after m passes
+   * when they differ by m * drift: for each i the nearest j in the drift direction among the prefixes with the
+   * same residue gives its earliest repeat, at time m * n + i.
+   */
+  private long solveAnalytically() {
+    int[] ints = asIntArray(inputLines);
+    int n = ints.length;
+    long[] prefix = new long[n];
+    long drift = 0;
+    for (int i = 0; i < n; i++) {
+      prefix[i] = drift;
+      drift += ints[i];
+    }
+
+    Set<Long> firstPass = newHashSet();
+    for (long frequency : prefix) {
+      if (!firstPass.add(frequency)) {
+        return frequency;
+      }
+    }
+    if (drift == 0) {
+      return prefix[0];
+    }
+
+    long modulo = Math.abs(drift);
+    Integer[] byResidue = range(0, n).boxed().toArray(Integer[]::new);
+    Arrays.sort(byResidue, Comparator.<Integer>comparingLong(i -> Math.floorMod(prefix[i], modulo))
+                                     .thenComparingLong(i -> prefix[i]));
+
+    long bestTime = Long.MAX_VALUE;
+    long result = 0;
+    for (int k = 0; k + 1 < n; k++) {
+      int lower = byResidue[k];
+      int upper = byResidue[k + 1];
+      if (Math.floorMod(prefix[lower], modulo) != Math.floorMod(prefix[upper], modulo)) {
+        continue;
+      }
+      // a positive drift moves the lower prefix up to the upper one, a negative drift the other way around
+      int from = drift > 0 ? lower : upper;
+      int to = drift > 0 ? upper : lower;
+      long passes = (prefix[upper] - prefix[lower]) / modulo;
+      long time = passes * n + from;
+      if (time < bestTime) {
+        bestTime = time;
+        result = prefix[to];
+      }
+    }
+    checkState(bestTime != Long.MAX_VALUE, "No frequency is ever reached twice");
+    return result;
+  }
 }
@@ -1,5 +1,6 @@
 package adventofcode.y2018;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Maps.newHashMap;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -61,6 +62,18 @@ public class Day2Part1 extends Base {
                                       "ababab")).solve()).isEqualTo("12");
     }
 
+    @Test
+    public void engines() {
+      List<String> input = Inputs.forDay("2");
+      String expected = new Day2Part1(input).solve(Engine.MULTIMAP);
+      assertThat(new Day2Part1(input).solve(Engine.HISTOGRAM)).isEqualTo(expected);
+    }
+
+    @Test
+    public void histogramWithCustomAlphabet() {
+      assertThat(new Day2Part1(asList("0101", "0001", "2223")).checksumWithHistogram('0', '9')).isEqualTo("2");
+    }
+
     @Test
     public void getFrequenciesByCharTest() {
       Map<String, Integer> actual = getFrequenciesByChar("hello");
@@ -91,6 +104,20 @@ public class Day2Part1 extends Base {
 
   }
 
+  public enum Engine {
+    /**
+     * Per line char to count map, inverted into a count to chars multimap.
+     */
+    MULTIMAP,
+    /**
+     * Per thread reusable letter histogram, lines processed in parallel.
+     */
+    HISTOGRAM
+  }
+
+  private static final int HAS_TWO = 1;
+  private static final int HAS_THREE = 2;
+
   public Day2Part1(final List<String> inputLines) {
     super(inputLines);
   }
@@ -114,6 +141,66 @@ public class Day2Part1 extends Base {
   }
 
   public String solve() {
+    return solve(Engine.HISTOGRAM);
+  }
+
+  String solve(final Engine engine) {
+    switch (engine) {
+      case MULTIMAP:
+        return checksumWithMultimap();
+      case HISTOGRAM:
+        return checksumWithHistogram('a', 'z');
+      default:
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+  }
+
+  /**
+   * Counts letters in an int[] indexed by {@code letter - lowest}, one array per worker thread.
+   * Only the slots touched by a line are read and reset, so big alphabets cost nothing extra.
+   */
+  String checksumWithHistogram(final char lowest, final char highest) {
+    checkArgument(lowest <= highest, "Invalid alphabet [%s, %s]", lowest, highest);
+    ThreadLocal<int[]> histograms = ThreadLocal.withInitial(() -> new int[highest - lowest + 1]);
+
+    long[] twosAndThrees = inputLines.parallelStream()
+                                     .mapToInt(line -> twoOrThree(line, histograms.get(), lowest))
+                                     .collect(() -> new long[2],
+                                              (acc, flags) -> {
+                                                acc[0] += flags & HAS_TWO;
+                                                acc[1] += (flags & HAS_THREE) >> 1;
+                                              },
+                                              (x, y) -> {
+                                                x[0] += y[0];
+                                                x[1] += y[1];
+                                              });
+
+    return String.valueOf(twosAndThrees[0] * twosAndThrees[1]);
+  }
+
+  private static int twoOrThree(final String line, final int[] histogram, final char lowest) {
+    int length = line.length();
+    for (int i = 0; i < length; i++) {
+      int slot = line.charAt(i) - lowest;
+      checkArgument(slot >= 0 && slot < histogram.length, "Letter [%s] of [%s] is out of the alphabet", line.charAt(i), line);
+      histogram[slot]++;
+    }
+    int result = 0;
+    for (int i = 0; i < length; i++) {
+      int slot = line.charAt(i) - lowest;
+      if (histogram[slot] == 2) {
+        result |= HAS_TWO;
+      } else if (histogram[slot] == 3) {
+        result |= HAS_THREE;
+      }
+    }
+    for (int i = 0; i < length; i++) {
+      histogram[line.charAt(i) - lowest] = 0;
+    }
+    return result;
+  }
+
+  private String checksumWithMultimap() {
     Multiset<Integer> values = HashMultiset.create();
 
     inputLines.stream()
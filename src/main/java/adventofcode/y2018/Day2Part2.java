@@ -1,7 +1,9 @@
 package adventofcode.y2018;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Maps.newHashMapWithExpectedSize;
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.IntStream.range;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
@@ -13,6 +15,8 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Stream;
 
 /*
@@ -63,7 +67,41 @@ public class Day2Part2 extends Base {
     @ParameterizedTest
     @MethodSource
     public void examples(final List<String> input, String expected) {
-      assertThat(new Day2Part2(input).solve()).isEqualTo(expected);
+      for (Engine engine : Engine.values()) {
+        assertThat(new Day2Part2(input).solve(engine)).as(engine.name()).isEqualTo(expected);
+      }
+    }
+
+    @Test
+    public void enginesOnGeneratedIds() {
+      for (long seed = 0; seed < 20; seed++) {
+        List<String> input = Generators.boxIds(seed, 300, 10).collect(toList());
+        String expected = new Day2Part2(input).solve(Engine.PAIRWISE);
+        for (Engine engine : Engine.values()) {
+          assertThat(new Day2Part2(input).solve(engine)).as("%s seed %s", engine, seed).isEqualTo(expected);
+        }
+      }
+    }
+
+    @Test
+    public void enginesWithDuplicateIds() {
+      List<List<String>> inputs = asList(asList("abcde", "abcde", "abcdf"),
+                                         asList("abcdf", "abcde", "vwxyz", "abcde", "vwxyz"),
+                                         asList("vwxyz", "abcde", "abcdf", "vwxyz"));
+      for (List<String> input : inputs) {
+        String expected = new Day2Part2(input).solve(Engine.PAIRWISE);
+        for (Engine engine : Engine.values()) {
+          assertThat(new Day2Part2(input).solve(engine)).as("%s %s", engine, input).isEqualTo(expected);
+        }
+      }
+      for (long seed = 0; seed < 5; seed++) {
+        List<String> input = Generators.boxIds(seed, 300, 10).collect(toList());
+        input.add(input.get(100 + (int) seed));
+        String expected = new Day2Part2(input).solve(Engine.PAIRWISE);
+        for (Engine engine : Engine.values()) {
+          assertThat(new Day2Part2(input).solve(engine)).as("%s seed %s", engine, seed).isEqualTo(expected);
+        }
+      }
     }
 
     @ParameterizedTest
@@ -79,6 +117,23 @@ public class Day2Part2 extends Base {
 
   }
 
+  public enum Engine {
+    /**
+     * Compares every pair of IDs.
+     */
+    PAIRWISE,
+    /**
+     * Pairwise scan split across cores, stops at the first pair of IDs differing by a single char.
+     */
+    PARALLEL_PAIRWISE,
+    /**
+     * Hashes every ID with one position masked out, for every position: close IDs share a masked hash.
+     */
+    MASKED_HASH
+  }
+
+  private static final long HASH_BASE = 1_000_003;
+
   public Day2Part2(final List<String> inputLines) {
     super(inputLines);
   }
@@ -96,6 +151,158 @@ public class Day2Part2 extends Base {
   }
 
   public String solve() {
+    return solve(Engine.MASKED_HASH);
+  }
+
+  String solve(final Engine engine) {
+    switch (engine) {
+      case PAIRWISE:
+        return solvePairwise();
+      case PARALLEL_PAIRWISE:
+        return solveParallelPairwise();
+      case MASKED_HASH:
+        return solveWithMaskedHashes();
+      default:
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+  }
+
+  /**
+   * Two IDs differing only at position k have the same hash once the char at k is removed from it.
+   * For each k, one pass over the IDs chaining together the ones with the same masked hash finds all such pairs
+   * in O(n * L). Hash matches are verified char by char; the first pair in input order wins, like the pairwise scan.
+   * Duplicated IDs share all their letters and win over any close pair.
+   * Falls back to the pairwise scan when no IDs differ by exactly one char.
+   */
+  private String solveWithMaskedHashes() {
+    int n = inputLines.size();
+    if (n < 2) {
+      return solvePairwise();
+    }
+    String duplicate = firstDuplicate();
+    if (duplicate != null) {
+      return duplicate;
+    }
+    int length = inputLines.get(0).length();
+    long[] hashes = new long[n];
+    for (int i = 0; i < n; i++) {
+      String id = inputLines.get(i);
+      checkArgument(id.length() == length, "String [%s] and [%s] do not have the same length", inputLines.get(0), id);
+      long hash = 0;
+      for (int k = 0; k < length; k++) {
+        hash = hash * HASH_BASE + id.charAt(k);
+      }
+      hashes[i] = hash;
+    }
+
+    int bestFirst = -1;
+    int bestSecond = -1;
+    int bestPosition = -1;
+    long weight = 1;
+    Map<Long, Integer> lastByMaskedHash = newHashMapWithExpectedSize(n);
+    int[] previous = new int[n];
+    for (int k = length - 1; k >= 0; k--, weight *= HASH_BASE) {
+      lastByMaskedHash.clear();
+      for (int j = 0; j < n; j++) {
+        long masked = hashes[j] - weight * inputLines.get(j).charAt(k);
+        Integer last = lastByMaskedHash.put(masked, j);
+        previous[j] = last == null ? -1 : last;
+        // every earlier ID with the same masked hash is a candidate: a hash collision must not hide the real pair
+        for (int i = previous[j]; i >= 0; i = previous[i]) {
+          boolean better = bestFirst < 0 || i < bestFirst || i == bestFirst && j < bestSecond;
+          if (better && differOnlyAt(inputLines.get(i), inputLines.get(j), k)) {
+            bestFirst = i;
+            bestSecond = j;
+            bestPosition = k;
+          }
+        }
+      }
+    }
+
+    if (bestFirst < 0) {
+      return solvePairwise();
+    }
+    String id = inputLines.get(bestFirst);
+    return id.substring(0, bestPosition) + id.substring(bestPosition + 1);
+  }
+
+  /**
+   * Once duplicated IDs are ruled out, common letters of length L-1 cannot be beaten: stop comparing a pair at its
+   * second mismatch and stop the whole search at the first close pair. findFirst on the ordered parallel stream keeps
+   * the pairwise scan order and cancels the outer indexes after the match.
+   * Falls back to the full pairwise scan when no IDs differ by exactly one char.
+   */
+  private String solveParallelPairwise() {
+    String duplicate = firstDuplicate();
+    if (duplicate != null) {
+      return duplicate;
+    }
+    return range(0, inputLines.size() - 1)
+      .parallel()
+      .mapToObj(this::firstCloseMatch)
+      .filter(Objects::nonNull)
+      .findFirst()
+      .orElseGet(this::solvePairwise);
+  }
+
+  private String firstCloseMatch(final int i) {
+    String x = inputLines.get(i);
+    for (int j = i + 1; j < inputLines.size(); j++) {
+      String y = inputLines.get(j);
+      checkArgument(x.length() == y.length(), "String [%s] and [%s] do not have the same length", x, y);
+      int position = singleMismatch(x, y);
+      if (position >= 0) {
+        return x.substring(0, position) + x.substring(position + 1);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The first ID, in input order, that appears again later in the list; null if all the IDs are distinct.
+   * This is the pair the pairwise scan settles on, all the letters being common.
+   */
+  private String firstDuplicate() {
+    Map<String, Integer> firstIndexById = newHashMapWithExpectedSize(inputLines.size());
+    int result = -1;
+    for (int j = 0; j < inputLines.size(); j++) {
+      Integer i = firstIndexById.putIfAbsent(inputLines.get(j), j);
+      if (i != null && (result < 0 || i < result)) {
+        result = i;
+      }
+    }
+    return result < 0 ? null : inputLines.get(result);
+  }
+
+  /**
+   * Position of the only char that differs, -1 if there are none or more than one.
+   */
+  private static int singleMismatch(final String x, final String y) {
+    int result = -1;
+    for (int k = 0; k < x.length(); k++) {
+      if (x.charAt(k) != y.charAt(k)) {
+        if (result >= 0) {
+          return -1;
+        }
+        result = k;
+      }
+    }
+    return result;
+  }
+
+  private static boolean differOnlyAt(final String x, final String y, final int position) {
+    if (x.charAt(position) == y.charAt(position)) {
+      return false;
+    }
+    for (int k = 0; k < x.length(); k++) {
+      if (k != position && x.charAt(k) != y.charAt(k)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String solvePairwise() {
     String maxCommonSubstring = "";
 
     for (int i = 0; i < inputLines.size() - 1; i++) {
@@ -4,6 +4,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Integer.parseInt;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static java.util.stream.IntStream.rangeClosed;
@@ -21,10 +22,17 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.function.IntConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /*
@@ -141,7 +149,35 @@ public class Day3 {
     @ParameterizedTest
     @MethodSource
     public void examples(final List<String> input, String expected) {
-      assertThat(new Day3(input).part1()).isEqualTo(expected);
+      for (OverlapEngine engine : OverlapEngine.values()) {
+        assertThat(new Day3(input).part1(engine)).as(engine.name()).isEqualTo(expected);
+      }
+    }
+
+    @Test
+    public void enginesOnGeneratedClaims() {
+      for (long seed = 0; seed < 10; seed++) {
+        List<String> input = Generators.claims(seed, 300, 300, 30).collect(toList());
+        String expected = new Day3(input).part1(OverlapEngine.POINT_MULTISET);
+        for (OverlapEngine engine : OverlapEngine.values()) {
+          assertThat(new Day3(input).part1(engine)).as("%s seed %s", engine, seed).isEqualTo(expected);
+        }
+      }
+    }
+
+    @Test
+    public void hugeFabric() {
+      List<String> input = asList("#1 @ 1000000,3000000: 4000000x4000000",
+                                  "#2 @ 3000000,1000000: 4000000x4000000",
+                                  "#3 @ 5000000,5000000: 2000000x2000000");
+      List<String> claims = Generators.claims(42, 200, 100, 30).collect(toList());
+      List<String> farAway = claims.stream().map(line -> translate(line, 100_000_000)).collect(toList());
+      String expected = new Day3(claims).part1(OverlapEngine.POINT_MULTISET);
+
+      for (OverlapEngine engine : asList(OverlapEngine.DIFFERENCE_GRID, OverlapEngine.SWEEP_LINE, OverlapEngine.TILED)) {
+        assertThat(new Day3(input).part1(engine)).as(engine.name()).isEqualTo("4000000000000");
+        assertThat(new Day3(farAway).part1(engine)).as(engine.name()).isEqualTo(expected);
+      }
     }
 
     @Test
@@ -151,6 +187,12 @@ public class Day3 {
       assertThat(actual).isEqualTo("118539");
     }
 
+    private static String translate(final String line, final int offset) {
+      Square square = parse(line);
+      return String.format("#%d @ %d,%d: %dx%d", square.getId(), square.getLeft() + offset, square.getTop() + offset,
+                           square.getWidth(), square.getHeight());
+    }
+
   }
 
   @Nested
@@ -168,7 +210,69 @@ public class Day3 {
     @ParameterizedTest
     @MethodSource
     public void examples(final List<String> input, String expected) {
-      assertThat(new Day3(input).part2()).isEqualTo(expected);
+      for (IntactEngine engine : IntactEngine.values()) {
+        assertThat(new Day3(input).part2(engine)).as(engine.name()).isEqualTo(expected);
+      }
+    }
+
+    @Test
+    public void enginesOnGeneratedClaims() {
+      for (long seed = 0; seed < 10; seed++) {
+        List<String> input = Generators.claims(seed, 200, 100, 30).collect(toList());
+        String expected = new Day3(input).part2(IntactEngine.POINT_MULTIMAP);
+        for (IntactEngine engine : IntactEngine.values()) {
+          assertThat(new Day3(input).part2(engine)).as("%s seed %s", engine, seed).isEqualTo(expected);
+        }
+      }
+    }
+
+    @Test
+    public void intersectingClaims() {
+      List<Square> squares = Stream.of("#1 @ 1,3: 4x4",
+                                       "#2 @ 3,1: 4x4",
+                                       "#3 @ 5,5: 2x2",
+                                       "#4 @ 0,0: 8x8",
+                                       "#5 @ 2,2: 0x5")
+                                   .map(Day3::parse)
+                                   .collect(toList());
+      ClaimIndex index = new ClaimIndex(squares);
+
+      assertThat(index.intersecting(squares.get(0))).extracting(Square::getId).containsExactlyInAnyOrder(2, 4);
+      assertThat(index.intersecting(squares.get(2))).extracting(Square::getId).containsExactly(4);
+      assertThat(index.intersecting(squares.get(3))).extracting(Square::getId).containsExactlyInAnyOrder(1, 2, 3);
+      assertThat(index.intersecting(squares.get(4))).isEmpty();
+    }
+
+    @Test
+    public void intersectingClaimsOfMixedSizes() {
+      Random random = new Random(42);
+      List<Square> squares = new ArrayList<>();
+      for (int id = 1; id <= 600; id++) {
+        int maxSide = id % 50 == 0 ? 800 : id % 5 == 0 ? 150 : 15;
+        squares.add(new Square(id, random.nextInt(1000), random.nextInt(1000),
+                               random.nextInt(maxSide), 1 + random.nextInt(maxSide)));
+      }
+      ClaimIndex index = new ClaimIndex(squares);
+
+      for (Square square : squares) {
+        List<Integer> expected = squares.stream()
+                                        .filter(other -> other != square && square.overlaps(other))
+                                        .map(Square::getId)
+                                        .collect(toList());
+        assertThat(index.intersecting(square)).extracting(Square::getId).as("claim %s", square.getId())
+                                              .containsExactlyInAnyOrderElementsOf(expected);
+      }
+    }
+
+    @Test
+    public void hugeClaimAmongSmallOnes() {
+      List<Square> squares = Generators.claims(42, 20_001, 1000, 20).map(Day3::parse).collect(toList());
+      Square huge = new Square(20_002, 0, 0, 4_000_000, 4_000_000);
+      squares.add(huge);
+      ClaimIndex index = new ClaimIndex(squares);
+
+      assertThat(index.intersecting(huge)).hasSize(20_001);
+      assertThat(squares.stream().filter(index::isIntact)).isEmpty();
     }
 
     @Test
@@ -217,8 +321,53 @@ public class Day3 {
       return left + width - 1;
     }
 
+    /**
+     * A claim with no area overlaps nothing.
+     */
+    boolean overlaps(final Square other) {
+      return width > 0 && height > 0 && other.width > 0 && other.height > 0
+             && left < other.left + other.width && other.left < left + width
+             && top < other.top + other.height && other.top < top + height;
+    }
+
+  }
+
+  public enum OverlapEngine {
+    /**
+     * Counts every square inch of every claim in a multiset of points.
+     */
+    POINT_MULTISET,
+    /**
+     * 2D difference array over the fabric: four updates per claim, then a single prefix sum pass over the cells.
+     * When the fabric is too big for one counter per square inch, falls back to the sweep line.
+     */
+    DIFFERENCE_GRID,
+    /**
+     * Sweep line over the top and bottom edges of the claims with a segment tree over the compressed columns:
+     * O(n log n), independent of the size of the fabric.
+     */
+    SWEEP_LINE,
+    /**
+     * Fabric split into tiles painted in parallel, each tile only by the claims crossing it.
+     * Falls back to the sweep line on fabrics too big to paint.
+     */
+    TILED
   }
 
+  public enum IntactEngine {
+    /**
+     * Maps every square inch to the claims covering it.
+     */
+    POINT_MULTIMAP,
+    /**
+     * Buckets the claims on a uniform grid and checks each claim against the ones sharing a bucket with it.
+     */
+    SPATIAL_INDEX
+  }
+
+  private static final long MAX_DENSE_CELLS = 1 << 24;
+  private static final long MAX_TILED_CELLS = 1L << 34;
+  private static final int TILE_SIDE = 128;
   private static final Pattern SQUARE_FORMAT = Pattern.compile("#(\\d+)\\s@\\s(\\d+),(\\d+):\\s(\\d+)x(\\d+)");
   private final List<String> inputLines;
 
@@ -226,20 +375,225 @@ public class Day3 {
     this.inputLines = inputLines;
   }
 
+  public String part1() {
+    return part1(OverlapEngine.DIFFERENCE_GRID);
+  }
+
+  String part1(final OverlapEngine engine) {
+    switch (engine) {
+      case POINT_MULTISET:
+        return String.valueOf(overlapWithMultiset());
+      case DIFFERENCE_GRID:
+        return String.valueOf(overlapWithDifferenceGrid());
+      case SWEEP_LINE:
+        return String.valueOf(sweepOverlap(getSquares().collect(toList())));
+      case TILED:
+        return String.valueOf(overlapWithTiles());
+      default:
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+  }
+
   /**
    * Simply collect all possible points into a Multiset.
    * Count how many have duplicate values.
    */
-  public String part1() {
+  private long overlapWithMultiset() {
     List<Point> allPoints = getSquares().flatMap(Square::allPoints)
                                         .collect(toList());
 
-    long result = HashMultiset.create(allPoints)
-                              .entrySet().stream()
-                              .filter(it -> it.getCount() > 1)
-                              .count();
+    return HashMultiset.create(allPoints)
+                       .entrySet().stream()
+                       .filter(it -> it.getCount() > 1)
+                       .count();
+  }
+
+  private long overlapWithDifferenceGrid() {
+    List<Square> squares = getSquares().collect(toList());
+    int width = 0;
+    int height = 0;
+    for (Square square : squares) {
+      width = Math.max(width, square.getLeft() + square.getWidth());
+      height = Math.max(height, square.getTop() + square.getHeight());
+    }
+    if ((width + 1L) * (height + 1L) <= MAX_DENSE_CELLS) {
+      return denseOverlap(squares, width, height);
+    }
+    return sweepOverlap(squares);
+  }
+
+  private long overlapWithTiles() {
+    List<Square> squares = getSquares().filter(square -> square.getWidth() > 0 && square.getHeight() > 0)
+                                       .collect(toList());
+    int width = 0;
+    int height = 0;
+    for (Square square : squares) {
+      width = Math.max(width, square.getLeft() + square.getWidth());
+      height = Math.max(height, square.getTop() + square.getHeight());
+    }
+    if ((long) width * height > MAX_TILED_CELLS) {
+      return sweepOverlap(squares);
+    }
+    return tiledOverlap(squares, (width + TILE_SIDE - 1) / TILE_SIDE, (height + TILE_SIDE - 1) / TILE_SIDE);
+  }
+
+  /**
+   * Claims are first bucketed by the tiles they cross, then every tile is painted on its own in a per thread
+   * buffer small enough to stay in cache. Tiles share nothing but the read-only buckets: the per tile counts
+   * are only summed at the end.
+   */
+  private static long tiledOverlap(final List<Square> squares, final int tileColumns, final int tileRows) {
+    int[][] tiles = new int[tileColumns * tileRows][];
+    int[] sizes = new int[tiles.length];
+    for (Square square : squares) {
+      forEachTile(square, tileColumns, tile -> sizes[tile]++);
+    }
+    for (int tile = 0; tile < tiles.length; tile++) {
+      tiles[tile] = new int[sizes[tile]];
+      sizes[tile] = 0;
+    }
+    for (int i = 0; i < squares.size(); i++) {
+      int index = i;
+      forEachTile(squares.get(i), tileColumns, tile -> tiles[tile][sizes[tile]++] = index);
+    }
+
+    ThreadLocal<byte[]> canvases = ThreadLocal.withInitial(() -> new byte[TILE_SIDE * TILE_SIDE]);
+    return IntStream.range(0, tiles.length)
+                    .parallel()
+                    .mapToLong(tile -> paintTile(squares, tiles[tile], (tile % tileColumns) * TILE_SIDE,
+                                                 (tile / tileColumns) * TILE_SIDE, canvases.get()))
+                    .sum();
+  }
+
+  /**
+   * Paints the claims clipped to the tile, counting cells as they reach two claims. Counts saturate at 2.
+   * The canvas is left blank for the next tile.
+   */
+  private static long paintTile(final List<Square> squares, final int[] claims, final int tileLeft, final int tileTop,
+                                final byte[] canvas) {
+    long result = 0;
+    for (int index : claims) {
+      Square square = squares.get(index);
+      int left = Math.max(square.getLeft(), tileLeft) - tileLeft;
+      int right = Math.min(square.getRight(), tileLeft + TILE_SIDE - 1) - tileLeft;
+      int top = Math.max(square.getTop(), tileTop) - tileTop;
+      int bottom = Math.min(square.getBottom(), tileTop + TILE_SIDE - 1) - tileTop;
+      for (int row = top; row <= bottom; row++) {
+        for (int cell = row * TILE_SIDE + left, end = row * TILE_SIDE + right; cell <= end; cell++) {
+          if (canvas[cell] < 2 && ++canvas[cell] == 2) {
+            result++;
+          }
+        }
+      }
+    }
+    Arrays.fill(canvas, (byte) 0);
+    return result;
+  }
+
+  private static void forEachTile(final Square square, final int tileColumns, final IntConsumer action) {
+    for (int row = square.getTop() / TILE_SIDE; row <= square.getBottom() / TILE_SIDE; row++) {
+      for (int column = square.getLeft() / TILE_SIDE; column <= square.getRight() / TILE_SIDE; column++) {
+        action.accept(row * tileColumns + column);
+      }
+    }
+  }
+
+  /**
+   * A claim adds 1 from its top left corner on, compensated past its right and bottom edges:
+   * after the 2D prefix sum every cell holds the number of claims covering it.
+   * The extra row and column only hold the compensations.
+   */
+  private static long denseOverlap(final List<Square> squares, final int width, final int height) {
+    int columns = width + 1;
+    int[] cells = new int[columns * (height + 1)];
+    for (Square square : squares) {
+      int top = square.getTop() * columns;
+      int bottom = (square.getTop() + square.getHeight()) * columns;
+      int left = square.getLeft();
+      int right = left + square.getWidth();
+      cells[top + left]++;
+      cells[top + right]--;
+      cells[bottom + left]--;
+      cells[bottom + right]++;
+    }
 
-    return String.valueOf(result);
+    long result = 0;
+    for (int row = 0; row < height; row++) {
+      int rowStart = row * columns;
+      int rowSum = 0;
+      for (int column = 0; column < width; column++) {
+        rowSum += cells[rowStart + column];
+        int count = rowSum + (row > 0 ? cells[rowStart - columns + column] : 0);
+        cells[rowStart + column] = count;
+        if (count > 1) {
+          result++;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Sweeps the claims top to bottom: between two consecutive top/bottom edges the set of claims does not change,
+   * so the overlap of the whole row band is its height times the width covered twice, as kept by a segment tree
+   * over the column edges. O(n log n) whatever the range of the coordinates.
+   */
+  private static long sweepOverlap(final List<Square> squares) {
+    int[] columns = squares.stream()
+                           .flatMapToInt(square -> IntStream.of(square.getLeft(), square.getLeft() + square.getWidth()))
+                           .sorted().distinct()
+                           .toArray();
+    if (columns.length < 2) {
+      return 0;
+    }
+    long[] events = rowEvents(squares);
+    CoverageTree coverage = new CoverageTree(columns);
+
+    long result = 0;
+    int e = 0;
+    while (e < events.length) {
+      long row = events[e] >>> 32;
+      for (; e < events.length && events[e] >>> 32 == row; e++) {
+        Square square = squares.get((int) events[e] >>> 1);
+        coverage.add(Arrays.binarySearch(columns, square.getLeft()),
+                     Arrays.binarySearch(columns, square.getLeft() + square.getWidth()),
+                     (events[e] & 1) == 0 ? 1 : -1);
+      }
+      if (e < events.length) {
+        result += coverage.coveredTwice() * ((events[e] >>> 32) - row);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * One event per top edge and one per bottom edge, sorted by row: the row in the high bits,
+   * the index of the square and a removal flag in the low ones.
+   */
+  private static long[] rowEvents(final List<Square> squares) {
+    long[] result = new long[2 * squares.size()];
+    for (int i = 0; i < squares.size(); i++) {
+      Square square = squares.get(i);
+      result[2 * i] = (long) square.getTop() << 32 | (long) i << 1;
+      result[2 * i + 1] = (long) (square.getTop() + square.getHeight()) << 32 | (long) i << 1 | 1;
+    }
+    Arrays.sort(result);
+    return result;
+  }
+
+  public String part2() {
+    return part2(IntactEngine.SPATIAL_INDEX);
+  }
+
+  String part2(final IntactEngine engine) {
+    switch (engine) {
+      case POINT_MULTIMAP:
+        return intactWithMultimap();
+      case SPATIAL_INDEX:
+        return intactWithSpatialIndex();
+      default:
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
   }
 
   /**
@@ -248,7 +602,7 @@ public class Day3 {
    * Collect overlapping squares
    * Diff from all squares to find the non-overlapping one.
    */
-  public String part2() {
+  private String intactWithMultimap() {
     Multimap<Point, Square> pointToSquares = HashMultimap.create();
 
     Set<Square> allSquares = getSquares().collect(toSet());
@@ -273,12 +627,24 @@ public class Day3 {
                                                .getId());
   }
 
+  private String intactWithSpatialIndex() {
+    List<Square> squares = getSquares().collect(toList());
+    ClaimIndex index = new ClaimIndex(squares);
+    List<Square> intact = squares.stream()
+                                 .filter(index::isIntact)
+                                 .collect(toList());
+
+    checkState(intact.size() == 1, "Found %s non overlapping squares", intact);
+
+    return String.valueOf(intact.get(0).getId());
+  }
+
   private Stream<Square> getSquares() {
     return inputLines.stream()
-                     .map(this::parse);
+                     .map(Day3::parse);
   }
 
-  private Square parse(final String line) {
+  static Square parse(final String line) {
     Matcher matcher = SQUARE_FORMAT.matcher(line);
     checkArgument(matcher.find(),
                   "Input [%s] does not match required pattern (%s)", line, SQUARE_FORMAT.pattern());
@@ -288,4 +654,163 @@ public class Day3 {
                       parseInt(matcher.group(4)),
                       parseInt(matcher.group(5)));
   }
+
+  /**
+   * Segment tree over the intervals between consecutive column edges. Each node counts the claims covering
+   * its whole range and keeps the width of its range covered at least once and at least twice.
+   * Covering counts are never pushed down: a claim is only ever removed from the nodes it was added to.
+   */
+  private static final class CoverageTree {
+    private final int[] columns;
+    private final int[] cover;
+    private final long[] once;
+    private final long[] twice;
+
+    CoverageTree(final int[] columns) {
+      this.columns = columns;
+      int nodes = 4 * columns.length;
+      this.cover = new int[nodes];
+      this.once = new long[nodes];
+      this.twice = new long[nodes];
+    }
+
+    /**
+     * Adds {@code delta} claims over the columns from the edge at index {@code from} to the one at {@code to}.
+     */
+    void add(final int from, final int to, final int delta) {
+      add(1, 0, columns.length - 1, from, to, delta);
+    }
+
+    long coveredTwice() {
+      return twice[1];
+    }
+
+    private void add(final int node, final int low, final int high, final int from, final int to, final int delta) {
+      if (to <= low || high <= from) {
+        return;
+      }
+      if (from <= low && high <= to) {
+        cover[node] += delta;
+      } else {
+        int middle = (low + high) >>> 1;
+        add(2 * node, low, middle, from, to, delta);
+        add(2 * node + 1, middle, high, from, to, delta);
+      }
+      update(node, low, high);
+    }
+
+    private void update(final int node, final int low, final int high) {
+      boolean leaf = high - low == 1;
+      long width = columns[high] - columns[low];
+      long childrenOnce = leaf ? 0 : once[2 * node] + once[2 * node + 1];
+      long childrenTwice = leaf ? 0 : twice[2 * node] + twice[2 * node + 1];
+      if (cover[node] > 1) {
+        once[node] = width;
+        twice[node] = width;
+      } else if (cover[node] == 1) {
+        once[node] = width;
+        twice[node] = childrenOnce;
+      } else {
+        once[node] = childrenOnce;
+        twice[node] = childrenTwice;
+      }
+    }
+  }
+
+  /**
+   * Uniform grid of buckets, about as big as the median claim: each claim is listed in the few buckets it touches,
+   * so memory grows with the number of claims and not with their area. Claims much larger than a bucket go to
+   * a coarser index of their own, built the same way from the large claims only.
+   */
+  static final class ClaimIndex {
+    private static final int LARGE_CLAIM_BUCKETS = 4;
+
+    private final Map<Long, List<Square>> buckets = new HashMap<>();
+    private final int bucketSize;
+    private final ClaimIndex largeClaims;
+
+    ClaimIndex(final List<Square> squares) {
+      int[] sides = squares.stream()
+                           .filter(square -> square.getWidth() > 0 && square.getHeight() > 0)
+                           .mapToInt(ClaimIndex::side)
+                           .sorted()
+                           .toArray();
+      this.bucketSize = sides.length == 0 ? 1 : Math.max(1, sides[sides.length / 2]);
+      // at most half of the claims are larger than the median one: the chain of indexes is logarithmic at worst
+      List<Square> large = new ArrayList<>();
+      for (Square square : squares) {
+        if (square.getWidth() == 0 || square.getHeight() == 0) {
+          continue;
+        }
+        if (side(square) > (long) LARGE_CLAIM_BUCKETS * bucketSize) {
+          large.add(square);
+          continue;
+        }
+        for (int row = square.getTop() / bucketSize; row <= square.getBottom() / bucketSize; row++) {
+          for (int column = square.getLeft() / bucketSize; column <= square.getRight() / bucketSize; column++) {
+            buckets.computeIfAbsent(key(column, row), key -> new ArrayList<>()).add(square);
+          }
+        }
+      }
+      this.largeClaims = large.isEmpty() ? null : new ClaimIndex(large);
+    }
+
+    /**
+     * Claims other than {@code square} sharing at least one square inch with it.
+     */
+    List<Square> intersecting(final Square square) {
+      List<Square> result = new ArrayList<>();
+      candidates(square).forEach(result::add);
+      return result;
+    }
+
+    boolean isIntact(final Square square) {
+      return !candidates(square).findAny().isPresent();
+    }
+
+    /**
+     * Two claims can share several buckets: a pair is only reported from the bucket holding
+     * the top left corner of their intersection. A claim covering more buckets than there are filled ones
+     * goes through the filled ones instead.
+     */
+    private Stream<Square> candidates(final Square square) {
+      if (square.getWidth() == 0 || square.getHeight() == 0) {
+        return Stream.empty();
+      }
+      int fromColumn = square.getLeft() / bucketSize;
+      int toColumn = square.getRight() / bucketSize;
+      int fromRow = square.getTop() / bucketSize;
+      int toRow = square.getBottom() / bucketSize;
+      Stream<Square> result;
+      if ((toRow - fromRow + 1L) * (toColumn - fromColumn + 1L) > buckets.size()) {
+        result = buckets.entrySet().stream().flatMap(bucket -> {
+          int column = (int) (bucket.getKey() >>> 32);
+          int row = (int) (long) bucket.getKey();
+          return column >= fromColumn && column <= toColumn && row >= fromRow && row <= toRow
+                 ? candidates(square, column, row, bucket.getValue())
+                 : Stream.empty();
+        });
+      } else {
+        result = rangeClosed(fromRow, toRow).boxed().flatMap(
+          row -> rangeClosed(fromColumn, toColumn).boxed().flatMap(
+            column -> candidates(square, column, row, buckets.getOrDefault(key(column, row), emptyList()))));
+      }
+      return largeClaims == null ? result : Stream.concat(result, largeClaims.candidates(square));
+    }
+
+    private Stream<Square> candidates(final Square square, final int column, final int row, final List<Square> bucket) {
+      return bucket.stream()
+                   .filter(other -> other != square && square.overlaps(other))
+                   .filter(other -> Math.max(square.getLeft(), other.getLeft()) / bucketSize == column
+                                    && Math.max(square.getTop(), other.getTop()) / bucketSize == row);
+    }
+
+    private static int side(final Square square) {
+      return Math.max(square.getWidth(), square.getHeight());
+    }
+
+    private static long key(final int column, final int row) {
+      return (long) column << 32 | row;
+    }
+  }
 }
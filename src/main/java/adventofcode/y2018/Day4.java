@@ -1,33 +1,32 @@
 package adventofcode.y2018;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Integer.parseInt;
 import static java.util.Arrays.asList;
-import static java.util.Comparator.comparing;
 import static java.util.Comparator.comparingInt;
+import static java.util.Comparator.comparingLong;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.IntStream.rangeClosed;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.HashMultiset;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multiset;
-import com.google.common.collect.Range;
-import org.checkerframework.checker.nullness.qual.Nullable;
+import lombok.Value;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.time.LocalDate;
 import java.util.AbstractMap;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -98,52 +97,40 @@ public class Day4 {
   @Nested
   public static class Day4Test {
 
+    private static final String[] EXAMPLE = {
+      "[1518-11-01 00:00] Guard #10 begins shift",
+      "[1518-11-01 00:05] falls asleep",
+      "[1518-11-01 00:25] wakes up",
+      "[1518-11-01 00:30] falls asleep",
+      "[1518-11-01 00:55] wakes up",
+      "[1518-11-01 23:58] Guard #99 begins shift",
+      "[1518-11-02 00:40] falls asleep",
+      "[1518-11-02 00:50] wakes up",
+      "[1518-11-03 00:05] Guard #10 begins shift",
+      "[1518-11-03 00:24] falls asleep",
+      "[1518-11-03 00:29] wakes up",
+      "[1518-11-04 00:02] Guard #99 begins shift",
+      "[1518-11-04 00:36] falls asleep",
+      "[1518-11-04 00:46] wakes up",
+      "[1518-11-05 00:03] Guard #99 begins shift",
+      "[1518-11-05 00:45] falls asleep",
+      "[1518-11-05 00:55] wakes up"
+    };
+
     static Stream<Arguments> part1examples() {
       return Stream.of(
-        arguments(shuffle("[1518-11-01 00:00] Guard #10 begins shift",
-                          "[1518-11-01 00:05] falls asleep",
-                          "[1518-11-01 00:25] wakes up",
-                          "[1518-11-01 00:30] falls asleep",
-                          "[1518-11-01 00:55] wakes up",
-                          "[1518-11-01 23:58] Guard #99 begins shift",
-                          "[1518-11-02 00:40] falls asleep",
-                          "[1518-11-02 00:50] wakes up",
-                          "[1518-11-03 00:05] Guard #10 begins shift",
-                          "[1518-11-03 00:24] falls asleep",
-                          "[1518-11-03 00:29] wakes up",
-                          "[1518-11-04 00:02] Guard #99 begins shift",
-                          "[1518-11-04 00:36] falls asleep",
-                          "[1518-11-04 00:46] wakes up",
-                          "[1518-11-05 00:03] Guard #99 begins shift",
-                          "[1518-11-05 00:45] falls asleep",
-                          "[1518-11-05 00:55] wakes up"), "240")
+        arguments(shuffle(EXAMPLE), "240")
       );
     }
 
     static Stream<Arguments> part2examples() {
       return Stream.of(
-        arguments(shuffle("[1518-11-01 00:00] Guard #10 begins shift",
-                          "[1518-11-01 00:05] falls asleep",
-                          "[1518-11-01 00:25] wakes up",
-                          "[1518-11-01 00:30] falls asleep",
-                          "[1518-11-01 00:55] wakes up",
-                          "[1518-11-01 23:58] Guard #99 begins shift",
-                          "[1518-11-02 00:40] falls asleep",
-                          "[1518-11-02 00:50] wakes up",
-                          "[1518-11-03 00:05] Guard #10 begins shift",
-                          "[1518-11-03 00:24] falls asleep",
-                          "[1518-11-03 00:29] wakes up",
-                          "[1518-11-04 00:02] Guard #99 begins shift",
-                          "[1518-11-04 00:36] falls asleep",
-                          "[1518-11-04 00:46] wakes up",
-                          "[1518-11-05 00:03] Guard #99 begins shift",
-                          "[1518-11-05 00:45] falls asleep",
-                          "[1518-11-05 00:55] wakes up"), "4455")
+        arguments(shuffle(EXAMPLE), "4455")
       );
     }
 
     private static List<String> shuffle(final String... input) {
-      List<String> result = asList(input);
+      List<String> result = asList(input.clone());
       Collections.shuffle(result);
       return result;
     }
@@ -151,7 +138,9 @@ public class Day4 {
     @ParameterizedTest
     @MethodSource
     public void part1examples(final List<String> input, String expected) {
-      assertThat(new Day4(input).part1()).isEqualTo(expected);
+      for (Parser parser : Parser.values()) {
+        assertThat(new Day4(input, parser).part1()).as(parser.name()).isEqualTo(expected);
+      }
     }
 
     @Test
@@ -163,7 +152,107 @@ public class Day4 {
     @ParameterizedTest
     @MethodSource
     public void part2examples(final List<String> input, String expected) {
-      assertThat(new Day4(input).part2()).isEqualTo(expected);
+      for (Parser parser : Parser.values()) {
+        assertThat(new Day4(input, parser).part2()).as(parser.name()).isEqualTo(expected);
+      }
+    }
+
+    @Test
+    public void parsersOnGeneratedLogs() {
+      for (long seed = 0; seed < 10; seed++) {
+        List<String> input = Generators.guardLogs(seed, 500, 20).collect(toList());
+        Collections.shuffle(input, new Random(seed));
+        Day4 expected = new Day4(input, Parser.REGEX);
+        for (Parser parser : Parser.values()) {
+          Day4 actual = new Day4(input, parser);
+          assertThat(actual.part1()).as("%s seed %s", parser, seed).isEqualTo(expected.part1());
+          assertThat(actual.part2()).as("%s seed %s", parser, seed).isEqualTo(expected.part2());
+        }
+      }
+    }
+
+    @Test
+    public void sameNapOnSeveralNights() {
+      List<String> input = asList("[1518-11-01 00:00] Guard #10 begins shift",
+                                  "[1518-11-01 00:05] falls asleep",
+                                  "[1518-11-01 00:10] wakes up",
+                                  "[1518-11-02 00:00] Guard #10 begins shift",
+                                  "[1518-11-02 00:05] falls asleep",
+                                  "[1518-11-02 00:10] wakes up",
+                                  "[1518-11-03 00:00] Guard #20 begins shift",
+                                  "[1518-11-03 00:20] falls asleep",
+                                  "[1518-11-03 00:28] wakes up");
+      for (Parser parser : Parser.values()) {
+        assertThat(new Day4(input, parser).part1()).as(parser.name()).isEqualTo("50");
+        assertThat(new Day4(input, parser).part2()).as(parser.name()).isEqualTo("50");
+      }
+    }
+
+    @Test
+    public void sleepHistogramTest() {
+      SleepHistogram histogram = new SleepHistogram();
+      histogram.add(5, 25);
+      histogram.add(30, 55);
+      histogram.add(24, 29);
+      assertThat(histogram.getTotal()).isEqualTo(50);
+      assertThat(histogram.getMostAsleepBucket()).isEqualTo(24);
+      assertThat(histogram.getMostAsleepCount()).isEqualTo(2);
+      assertThat(histogram.getCount(29)).isEqualTo(0);
+
+      histogram.add(40, 41);
+      assertThat(histogram.getMostAsleepBucket()).isEqualTo(24);
+      histogram.add(40, 41);
+      assertThat(histogram.getMostAsleepBucket()).isEqualTo(40);
+      assertThat(histogram.getMostAsleepCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void fiveMinuteBuckets() {
+      List<String> input = shuffle(EXAMPLE);
+      for (Parser parser : Parser.values()) {
+        Day4 day4 = new Day4(input, parser, new Window(0, 60 * 60, 5 * 60));
+        assertThat(day4.part1()).as(parser.name()).isEqualTo("40");
+        assertThat(day4.part2()).as(parser.name()).isEqualTo("891");
+      }
+    }
+
+    @Test
+    public void secondsAroundMidnight() {
+      List<String> input = asList("[1518-11-01 23:59:30] Guard #7 begins shift",
+                                  "[1518-11-01 23:59:50] falls asleep",
+                                  "[1518-11-02 00:00:10] wakes up",
+                                  "[1518-11-02 23:59:45] Guard #7 begins shift",
+                                  "[1518-11-03 00:00:05] falls asleep",
+                                  "[1518-11-03 00:00:20] wakes up",
+                                  "[1518-11-04 00:00:00] Guard #3 begins shift",
+                                  "[1518-11-04 00:00:00] falls asleep",
+                                  "[1518-11-04 00:30:00] wakes up");
+      Day4 day4 = new Day4(input, Parser.PACKED, new Window(-60, 120, 1));
+      assertThat(day4.part1()).isEqualTo(String.valueOf(3 * 60));
+      assertThat(day4.part2()).isEqualTo(String.valueOf(7 * 65));
+    }
+
+    @Test
+    public void radixSortTest() {
+      Random random = new Random(42);
+      for (int size : new int[]{0, 1, 2, 100, 10_000}) {
+        for (long bound : new long[]{1, 1000, Long.MAX_VALUE}) {
+          long[] values = random.longs(size, 0, bound).toArray();
+          long[] expected = values.clone();
+          Arrays.sort(expected);
+          radixSort(values);
+          assertThat(values).as("size %s bound %s", size, bound).isEqualTo(expected);
+        }
+      }
+    }
+
+    @Test
+    public void invalidLines() {
+      for (String line : asList("", "[1518-11-01 00:05]", "[1518-11-01 00:05] snores", "1518-11-01 00:05 falls asleep")) {
+        assertThatThrownBy(() -> new Day4(asList(line), Parser.PACKED)).as(line)
+                                                                     .isInstanceOf(IllegalArgumentException.class)
+                                                                     .hasMessageContaining(line);
+      }
     }
 
     @Test
@@ -173,45 +262,188 @@ public class Day4 {
     }
   }
 
+  public enum Parser {
+    /**
+     * Sorts the lines as Strings, then matches each one against the event patterns.
+     * Only reads the minute of the timestamps: naps must be within the midnight hour.
+     */
+    REGEX,
+    /**
+     * Decodes each line once into a packed long, sorted with a radix sort.
+     */
+    PACKED
+  }
+
+  static final int BEGINS_SHIFT = 0;
+  static final int FALLS_ASLEEP = 1;
+  static final int WAKES_UP = 2;
+  private static final int GUARD_BITS = 22;
+  private static final int TYPE_BITS = 2;
+  private static final int RADIX_BITS = 8;
   private static final Pattern GUARD_BEGINS_SHIFT = Pattern.compile("Guard #(\\d+)");
   private static final Pattern GUARD_FALLS_ASLEEP = Pattern.compile("(\\d+)] falls asleep");
   private static final Pattern GUARD_WAKES_UP = Pattern.compile("(\\d+)] wakes up");
-  private final Multimap<Integer, Range<Integer>> guardIdToSleepRanges;
+  private static final int MINUTES = 60;
+  private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+  static final Window MIDNIGHT_HOUR = new Window(0, 60 * 60, 60);
+  private final Map<Integer, SleepHistogram> guardIdToSleep = new HashMap<>();
+  private final Window window;
 
   public Day4(final List<String> inputLines) {
-    guardIdToSleepRanges = parseSchedule(inputLines);
+    this(inputLines, Parser.PACKED);
   }
 
-  private int findMostSleepyGuardId() {
-    Map<Integer, Integer> guardIdToTotalSleepTime = Maps.transformValues(guardIdToSleepRanges.asMap(),
-                                                                         this::totalSpan);
+  Day4(final List<String> inputLines, final Parser parser) {
+    this(inputLines, parser, MIDNIGHT_HOUR);
+  }
 
-    Map.Entry<Integer, Integer> maxEntry = Collections.max(guardIdToTotalSleepTime.entrySet(), comparingInt(Map.Entry::getValue));
-    return maxEntry.getKey();
+  Day4(final List<String> inputLines, final Parser parser, final Window window) {
+    this.window = window;
+    switch (parser) {
+      case REGEX:
+        parseSchedule(inputLines);
+        break;
+      case PACKED:
+        parsePackedSchedule(inputLines);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown parser: " + parser);
+    }
   }
 
-  private Multiset.Entry<Integer> findMostSleepyMinuteAndValue(final Collection<Range<Integer>> input) {
-    Multiset<Integer> byMinute = HashMultiset.create();
+  /**
+   * LSD radix sort of non negative longs, one byte at a time. Bytes that are the same for all the values are skipped,
+   * which for timestamps of the same century saves most of the high passes.
+   */
+  static void radixSort(final long[] values) {
+    long[] buffer = new long[values.length];
+    long[] from = values;
+    long[] to = buffer;
+    int[] counts = new int[1 << RADIX_BITS];
+    for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+      Arrays.fill(counts, 0);
+      for (long value : from) {
+        counts[(int) (value >>> shift) & (counts.length - 1)]++;
+      }
+      if (from.length == 0 || counts[(int) (from[0] >>> shift) & (counts.length - 1)] == from.length) {
+        continue;
+      }
+      for (int i = 0, start = 0; i < counts.length; i++) {
+        int count = counts[i];
+        counts[i] = start;
+        start += count;
+      }
+      for (long value : from) {
+        to[counts[(int) (value >>> shift) & (counts.length - 1)]++] = value;
+      }
+      long[] swap = from;
+      from = to;
+      to = swap;
+    }
+    if (from != values) {
+      System.arraycopy(from, 0, values, 0, values.length);
+    }
+  }
 
-    input.stream()
-         .flatMap(range -> rangeClosed(range.lowerEndpoint(), range.upperEndpoint()).boxed())
-         .forEach(byMinute::add);
+  /**
+   * {@code [1518-11-01 00:05] falls asleep}: the timestamp has a fixed width, with or without seconds, and the event
+   * is told apart by the first char after it. Seconds since year 0 go in the high bits, then the event type,
+   * then the guard ID, so that sorting the longs sorts the log like sorting the lines does.
+   */
+  static long pack(final String line) {
+    int close = line.length() > 17 && line.charAt(17) == ':' ? 20 : 17;
+    checkArgument(line.length() > close + 2 && line.charAt(0) == '[' && line.charAt(close) == ']',
+                  "Input [%s] does not start with a [yyyy-MM-dd HH:mm] or [yyyy-MM-dd HH:mm:ss] timestamp", line);
+    long timestamp = digits(line, 1, 5);
+    timestamp = timestamp * 12 + digits(line, 6, 8) - 1;
+    timestamp = timestamp * 31 + digits(line, 9, 11) - 1;
+    timestamp = timestamp * 24 + digits(line, 12, 14);
+    timestamp = timestamp * 60 + digits(line, 15, 17);
+    timestamp = timestamp * 60 + (close == 20 ? digits(line, 18, 20) : 0);
+
+    int type;
+    int guardId = 0;
+    switch (line.charAt(close + 2)) {
+      case 'G':
+        type = BEGINS_SHIFT;
+        int start = line.indexOf('#', close) + 1;
+        int end = line.indexOf(' ', start);
+        checkArgument(start > 0 && end > start, "Input [%s] has no guard ID", line);
+        guardId = digits(line, start, end);
+        checkArgument(guardId < 1 << GUARD_BITS, "Guard ID too big in [%s]", line);
+        break;
+      case 'f':
+        type = FALLS_ASLEEP;
+        break;
+      case 'w':
+        type = WAKES_UP;
+        break;
+      default:
+        throw new IllegalArgumentException(String.format("Input [%s] is not a known event", line));
+    }
+    return timestamp << (TYPE_BITS + GUARD_BITS) | (long) type << GUARD_BITS | guardId;
+  }
 
-    return Collections.max(byMinute.entrySet(), comparingInt(Multiset.Entry::getCount));
+  static int typeOf(final long event) {
+    return (int) (event >>> GUARD_BITS) & ((1 << TYPE_BITS) - 1);
   }
 
-  private Map.Entry<Integer, Integer> findMostSleepyMinutePerGuard() {
-    Map<Integer, Multiset.Entry<Integer>> guardIdToMostSleepyMinute = Maps.transformValues(guardIdToSleepRanges.asMap(),
-                                                                                           this::findMostSleepyMinuteAndValue);
+  static int guardIdOf(final long event) {
+    return (int) event & ((1 << GUARD_BITS) - 1);
+  }
 
-    Map.Entry<Integer, Multiset.Entry<Integer>> max = Collections.max(guardIdToMostSleepyMinute.entrySet(),
-                                                                      comparing((Map.Entry<Integer, Multiset.Entry<Integer>> it) -> it.getValue().getCount()));
-    return new AbstractMap.SimpleEntry<>(max.getKey(), max.getValue().getElement());
+  /**
+   * Seconds from the midnight of the shift day, negative in the evening before.
+   */
+  static int shiftSecondOf(final long event) {
+    int second = (int) ((event >>> (TYPE_BITS + GUARD_BITS)) % SECONDS_PER_DAY);
+    return second >= SECONDS_PER_DAY / 2 ? second - SECONDS_PER_DAY : second;
   }
 
-  private Multimap<Integer, Range<Integer>> parseSchedule(final List<String> input) {
-    Multimap<Integer, Range<Integer>> result = HashMultimap.create();
+  /**
+   * Day of the shift the event belongs to: shifts starting in the evening are for the next day.
+   */
+  static LocalDate shiftDateOf(final long event) {
+    long timestamp = event >>> (TYPE_BITS + GUARD_BITS);
+    long days = timestamp / SECONDS_PER_DAY;
+    LocalDate result = LocalDate.of((int) (days / 31 / 12), (int) (days / 31 % 12) + 1, (int) (days % 31) + 1);
+    return shiftSecondOf(event) < 0 ? result.plusDays(1) : result;
+  }
 
+  private static int digits(final String line, final int start, final int end) {
+    int result = 0;
+    for (int i = start; i < end; i++) {
+      int digit = line.charAt(i) - '0';
+      checkArgument(digit >= 0 && digit <= 9, "Input [%s] has a non digit at %s", line, i);
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  static int findMostSleepyGuardId(final Map<Integer, SleepHistogram> guardIdToSleep) {
+    Map.Entry<Integer, SleepHistogram> maxEntry = Collections.max(guardIdToSleep.entrySet(),
+                                                                  comparingLong(it -> it.getValue().getTotal()));
+    return maxEntry.getKey();
+  }
+
+  static Map.Entry<Integer, Integer> findMostSleepyMinutePerGuard(final Map<Integer, SleepHistogram> guardIdToSleep) {
+    Map.Entry<Integer, SleepHistogram> max = Collections.max(guardIdToSleep.entrySet(),
+                                                             comparingInt(it -> it.getValue().getMostAsleepCount()));
+    return new AbstractMap.SimpleEntry<>(max.getKey(), max.getValue().getMostAsleepBucket());
+  }
+
+  /**
+   * Guard asleep from second {@code from} included to second {@code to} excluded, in seconds from the midnight
+   * of the shift day. Only the part of the nap within the window is counted.
+   */
+  private void addSleep(final int guardId, final int from, final int to) {
+    checkArgument(from < to, "Guard #%s wakes up at %s before falling asleep at %s", guardId, to, from);
+    if (window.overlaps(from, to)) {
+      guardIdToSleep.computeIfAbsent(guardId, id -> window.newHistogram()).addNap(from, to);
+    }
+  }
+
+  private void parseSchedule(final List<String> input) {
     List<String> sorted = input.stream()
                                .sorted()
                                .collect(toList());
@@ -241,42 +473,201 @@ public class Day4 {
 
         checkNotNull(guardId);
         checkNotNull(fallsAsleepAt);
-        result.put(guardId, Range.closed(fallsAsleepAt, wakesUpAt - 1));
+        addSleep(guardId, fallsAsleepAt * 60, wakesUpAt * 60);
 
         i++;
         continue;
       }
 
     }
-    return result;
   }
 
-  private String part1() {
-    int mostSleepyGuardId = findMostSleepyGuardId();
-    Multiset.Entry<Integer> mostSleepyMinuteAndValue = findMostSleepyMinuteAndValue(scheduleForGuard(mostSleepyGuardId));
-    int mostSleepyMinute = mostSleepyMinuteAndValue.getElement();
+  private void parsePackedSchedule(final List<String> input) {
+    long[] events = new long[input.size()];
+    for (int i = 0; i < events.length; i++) {
+      events[i] = pack(input.get(i));
+    }
+    radixSort(events);
+
+    int guardId = -1;
+    int fallsAsleepAt = -1;
+    boolean asleep = false;
+    for (long event : events) {
+      int second = shiftSecondOf(event);
+      switch (typeOf(event)) {
+        case BEGINS_SHIFT:
+          guardId = guardIdOf(event);
+          break;
+        case FALLS_ASLEEP:
+          fallsAsleepAt = second;
+          asleep = true;
+          break;
+        default:
+          checkState(guardId >= 0 && asleep, "Guard wakes up before falling asleep");
+          addSleep(guardId, fallsAsleepAt, second);
+          asleep = false;
+      }
+    }
+  }
+
+  String part1() {
+    int mostSleepyGuardId = findMostSleepyGuardId(guardIdToSleep);
+    int mostSleepyBucket = guardIdToSleep.get(mostSleepyGuardId).getMostAsleepBucket();
 
-    int result = mostSleepyGuardId * mostSleepyMinute;
-    System.out.printf("GuardId (%s) x minute (%s) = %s%n", mostSleepyGuardId, mostSleepyMinute, result);
+    int result = mostSleepyGuardId * mostSleepyBucket;
+    System.out.printf("GuardId (%s) x bucket (%s) = %s%n", mostSleepyGuardId, mostSleepyBucket, result);
     return String.valueOf(result);
   }
 
-  private String part2() {
-    Map.Entry<Integer, Integer> guardAndMinute = findMostSleepyMinutePerGuard();
+  String part2() {
+    Map.Entry<Integer, Integer> guardAndMinute = findMostSleepyMinutePerGuard(guardIdToSleep);
 
     Integer result = guardAndMinute.getKey() * guardAndMinute.getValue();
-    System.out.printf("GuardId (%s) x minute (%s) = %s%n", guardAndMinute.getKey(), guardAndMinute.getValue(), result);
+    System.out.printf("GuardId (%s) x bucket (%s) = %s%n", guardAndMinute.getKey(), guardAndMinute.getValue(), result);
     return String.valueOf(result);
   }
 
-  private Collection<Range<Integer>> scheduleForGuard(final int guardId) {
-    return guardIdToSleepRanges.get(guardId);
-  }
+  /**
+   * Part of the shift the naps are counted in: from {@code start} for {@code length} seconds, in seconds from the
+   * midnight of the shift day (negative in the evening before), cut in buckets of {@code bucketSeconds}.
+   * The puzzle looks at the midnight hour minute by minute.
+   */
+  @Value
+  static class Window {
+    private int start;
+    private int length;
+    private int bucketSeconds;
+
+    Window(final int start, final int length, final int bucketSeconds) {
+      checkArgument(length > 0 && bucketSeconds > 0, "Invalid window length %s or bucket size %s", length, bucketSeconds);
+      checkArgument(-SECONDS_PER_DAY / 2 <= start && start + length <= SECONDS_PER_DAY / 2,
+                    "Window [%s, %s) is not within 12 hours of midnight", start, start + length);
+      this.start = start;
+      this.length = length;
+      this.bucketSeconds = bucketSeconds;
+    }
+
+    /**
+     * Some part of the nap from second {@code from} included to second {@code to} excluded is within the window.
+     */
+    boolean overlaps(final int from, final int to) {
+      return from < start + length && start < to;
+    }
 
-  private int totalSpan(final @Nullable Collection<Range<Integer>> ranges) {
-    return ranges.stream()
-                 .mapToInt(it -> it.upperEndpoint() - it.lowerEndpoint() + 1)
-                 .sum();
+    SleepHistogram newHistogram() {
+      return new SleepHistogram(start, length, bucketSeconds);
+    }
   }
 
+  /**
+   * Time a guard spent asleep over all the nights, counted per bucket: a difference array over the buckets, O(1) per nap,
+   * turned into counts per bucket at the first query after a change. A bucket counts a nap covering any part of it.
+   * Positions are in units from the start of the window, {@code bucketSize} units per bucket.
+   */
+  static final class SleepHistogram {
+    private final int bucketSize;
+    private final int[] changes;
+    private final int[] counts;
+    private final int length;
+    private final int start;
+    private boolean dirty;
+    private int mostAsleepBucket;
+    private long total;
+
+    /**
+     * Minute by minute over an hour.
+     */
+    SleepHistogram() {
+      this(MINUTES, 1);
+    }
+
+    SleepHistogram(final int length, final int bucketSize) {
+      this(0, length, bucketSize);
+    }
+
+    private SleepHistogram(final int start, final int length, final int bucketSize) {
+      this.start = start;
+      this.length = length;
+      this.bucketSize = bucketSize;
+      this.counts = new int[(length + bucketSize - 1) / bucketSize];
+      this.changes = new int[counts.length + 1];
+    }
+
+    void add(final int from, final int to) {
+      checkArgument(0 <= from && from < to && to <= length, "Invalid nap [%s, %s)", from, to);
+      changes[from / bucketSize]++;
+      changes[(to + bucketSize - 1) / bucketSize]--;
+      total += to - from;
+      dirty = true;
+    }
+
+    void remove(final int from, final int to) {
+      checkArgument(0 <= from && from < to && to <= length, "Invalid nap [%s, %s)", from, to);
+      checkState(total >= to - from, "Nap [%s, %s) was never added", from, to);
+      changes[from / bucketSize]--;
+      changes[(to + bucketSize - 1) / bucketSize]++;
+      total -= to - from;
+      dirty = true;
+    }
+
+    /**
+     * Adds the part of the nap [from, to) within the histogram, {@code from} and {@code to} being positions
+     * from the origin of its window rather than from its start.
+     */
+    void addNap(final int from, final int to) {
+      int clippedFrom = Math.max(from, start);
+      int clippedTo = Math.min(to, start + length);
+      if (clippedFrom < clippedTo) {
+        add(clippedFrom - start, clippedTo - start);
+      }
+    }
+
+    /**
+     * Takes back a nap given to {@link #addNap}.
+     */
+    void removeNap(final int from, final int to) {
+      int clippedFrom = Math.max(from, start);
+      int clippedTo = Math.min(to, start + length);
+      if (clippedFrom < clippedTo) {
+        remove(clippedFrom - start, clippedTo - start);
+      }
+    }
+
+    long getTotal() {
+      return total;
+    }
+
+    int getCount(final int bucket) {
+      refresh();
+      return counts[bucket];
+    }
+
+    /**
+     * The earliest of the buckets with the highest count.
+     */
+    int getMostAsleepBucket() {
+      refresh();
+      return mostAsleepBucket;
+    }
+
+    int getMostAsleepCount() {
+      return getCount(getMostAsleepBucket());
+    }
+
+    private void refresh() {
+      if (!dirty) {
+        return;
+      }
+      int count = 0;
+      mostAsleepBucket = 0;
+      for (int bucket = 0; bucket < counts.length; bucket++) {
+        count += changes[bucket];
+        counts[bucket] = count;
+        if (count > counts[mostAsleepBucket]) {
+          mostAsleepBucket = bucket;
+        }
+      }
+      dirty = false;
+    }
+  }
 }
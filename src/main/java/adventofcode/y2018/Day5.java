@@ -1,6 +1,7 @@
 package adventofcode.y2018;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
@@ -13,9 +14,17 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -74,14 +83,31 @@ public class Day5 {
 
     static Stream<Arguments> part2examples() {
       return Stream.of(
-        arguments(asList("dabAcCaCBAcCcaDA"), "4")
+        arguments(asList("dabAcCaCBAcCcaDA"), "4"),
+        arguments(asList("a1A"), "0"),
+        arguments(asList("_1_b1aAB"), "2")
       );
     }
 
     @ParameterizedTest
     @MethodSource
     public void part1examples(final List<String> input, String expected) {
-      assertThat(new Day5(input).part1()).isEqualTo(expected);
+      for (Engine engine : Engine.values()) {
+        assertThat(new Day5(input).part1(engine)).as(engine.name()).isEqualTo(expected);
+      }
+    }
+
+    @Test
+    public void enginesOnGeneratedPolymers() {
+      for (long seed = 0; seed < 10; seed++) {
+        StringBuilder polymer = new StringBuilder("_1_1aA_");
+        Generators.polymer(seed, 2000, polymer);
+        Day5 day5 = new Day5(asList(polymer.toString()));
+        String expected = day5.reducePolymer(polymer.toString(), Engine.REGEX);
+        for (Engine engine : Engine.values()) {
+          assertThat(day5.reducePolymer(polymer.toString(), engine)).as("%s seed %s", engine, seed).isEqualTo(expected);
+        }
+      }
     }
 
     @Test
@@ -94,7 +120,9 @@ public class Day5 {
     @ParameterizedTest
     @MethodSource
     public void part2examples(final List<String> input, String expected) {
-      assertThat(new Day5(input).part2()).isEqualTo(expected);
+      for (Engine engine : Engine.values()) {
+        assertThat(new Day5(input).part2(engine)).as(engine.name()).isEqualTo(expected);
+      }
     }
 
     @Test
@@ -103,6 +131,33 @@ public class Day5 {
       System.out.println(actual);
     }
 
+    @Test
+    public void parallelReductionWithTinyChunks() {
+      for (long seed = 0; seed < 5; seed++) {
+        StringBuilder polymer = new StringBuilder();
+        Generators.polymer(seed, 5000, polymer);
+        String expected = new Day5(asList(polymer.toString())).reducePolymer(polymer.toString(), Engine.STACK);
+        for (int threshold : new int[]{1, 2, 3, 64}) {
+          byte[] units = polymer.toString().getBytes(US_ASCII);
+          int size = reduceInParallel(units, threshold);
+          assertThat(new String(units, 0, size, US_ASCII)).as("seed %s threshold %s", seed, threshold).isEqualTo(expected);
+        }
+      }
+    }
+
+    @Test
+    public void part2OnGeneratedPolymers() {
+      for (long seed = 0; seed < 5; seed++) {
+        StringBuilder polymer = new StringBuilder("a1A_");
+        Generators.polymer(seed, 1000, polymer);
+        Day5 day5 = new Day5(asList(polymer.toString()));
+        String expected = day5.part2(Engine.REGEX);
+        for (Engine engine : Engine.values()) {
+          assertThat(day5.part2(engine)).as("%s seed %s", engine, seed).isEqualTo(expected);
+        }
+      }
+    }
+
     @ParameterizedTest
     @CsvSource({
                  "aA, a, ''",
@@ -117,6 +172,24 @@ public class Day5 {
     }
   }
 
+  public enum Engine {
+    /**
+     * Removes all the reacting pairs with a regex, pass after pass, until none is left.
+     */
+    REGEX,
+    /**
+     * Single pass with a stack: each unit either destroys the unit on top of the stack or is pushed on it.
+     */
+    STACK,
+    /**
+     * Chunks reduced with a stack on a ForkJoin pool, then merged pairwise by cancelling units across the boundary.
+     */
+    PARALLEL
+  }
+
+  private static final int UNIT_TYPES = 256;
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+  private static final int POLARITY = 'a' - 'A';
   private static final Pattern REGEX = Pattern.compile("(\\w)"       // match a characther
                                                          + "(?!"     // negative lookahead (do not match this regex)
                                                          + "\\1"     //   exactly same match (to avoid 'aa' and 'AA')
@@ -136,13 +209,35 @@ public class Day5 {
     return input.replaceAll(pattern, "");
   }
 
-  private String part1() {
-    String reduced = reducePolymer(polymer);
+  String part1() {
+    return part1(Engine.STACK);
+  }
+
+  String part1(final Engine engine) {
+    String reduced = reducePolymer(polymer, engine);
     System.out.printf("Size reduced to %d chars%n", reduced.length());
     return String.valueOf(reduced.length());
   }
 
-  private String part2() {
+  String part2() {
+    return part2(Engine.STACK);
+  }
+
+  String part2(final Engine engine) {
+    switch (engine) {
+      case REGEX:
+        return removeEachLetterAndReduce(engine);
+      case STACK:
+      case PARALLEL:
+        int result = shortestWithoutOneType(engine);
+        System.out.println("Min polymer length: " + result);
+        return String.valueOf(result);
+      default:
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+  }
+
+  private String removeEachLetterAndReduce(final Engine engine) {
     char[] alphabeth = polymer.toLowerCase().toCharArray();
     int minPolymerLenght = Chars.asList(alphabeth)
                                 .stream()
@@ -151,7 +246,7 @@ public class Day5 {
                                   System.out.printf("removing %s: ", c);
                                   return removeIgnorecase(polymer, c);
                                 })
-                                .map(this::reducePolymer)
+                                .map(it -> reducePolymer(it, engine))
                                 .mapToInt(String::length)
                                 .peek(System.out::println)
                                 .min().orElseThrow(IllegalStateException::new);
@@ -159,7 +254,184 @@ public class Day5 {
     return String.valueOf(minPolymerLenght);
   }
 
-  private String reducePolymer(final String input) {
+  String reducePolymer(final String input) {
+    return reducePolymer(input, Engine.STACK);
+  }
+
+  String reducePolymer(final String input, final Engine engine) {
+    switch (engine) {
+      case REGEX:
+        return reduceWithRegex(input);
+      case STACK:
+      case PARALLEL:
+        byte[] units = input.getBytes(US_ASCII);
+        return new String(units, 0, reduceInPlace(units, engine), US_ASCII);
+      default:
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+  }
+
+  /**
+   * Reduced length of a polymer file of any size, streamed through the reduction stack without loading it.
+   */
+  static long reducedLength(final Path path) {
+    try (FileChannel input = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new PolymerStream().reduce(input);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Pushes the units in [from, to) on a stack already holding {@code size} units and returns the new size.
+   * The stack never grows faster than the units are read, so it can be the units array itself.
+   */
+  static int react(final byte[] units, final int from, final int to, final byte[] stack, final int size) {
+    int result = size;
+    for (int i = from; i < to; i++) {
+      byte unit = units[i];
+      if (result > 0 && reacts(stack[result - 1], unit)) {
+        result--;
+      } else {
+        stack[result++] = unit;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Same letter, opposite polarity.
+   */
+  static boolean reacts(final int x, final int y) {
+    return (x ^ y) == POLARITY && (x | POLARITY) >= 'a' && (x | POLARITY) <= 'z';
+  }
+
+  /**
+   * Units of another type react the same way with or without a given type around, so removing a type commutes
+   * with the reactions: reduce once, then try each removal on the reduced polymer, which is usually much shorter.
+   * Like the regex engine, every type is tried, letters or not; removing a type missing from the reduced polymer
+   * leaves it unchanged. The removals run in parallel over the same bytes, each thread with its own stack.
+   */
+  private int shortestWithoutOneType(final Engine engine) {
+    byte[] units = polymer.getBytes(US_ASCII);
+    int size = reduceInPlace(units, engine);
+
+    boolean[] present = new boolean[UNIT_TYPES];
+    for (int i = 0; i < size; i++) {
+      present[typeOf(units[i])] = true;
+    }
+
+    ThreadLocal<byte[]> stacks = ThreadLocal.withInitial(() -> new byte[size]);
+    return IntStream.range(0, UNIT_TYPES)
+                    .parallel()
+                    .filter(type -> present[type])
+                    .map(type -> reactWithout(units, size, type, stacks.get()))
+                    .min()
+                    .orElse(size);
+  }
+
+  /**
+   * Letters of both polarities share their lower case type, any other unit is a type of its own.
+   */
+  private static int typeOf(final byte unit) {
+    int lowerCase = (unit & 0xFF) | POLARITY;
+    return lowerCase >= 'a' && lowerCase <= 'z' ? lowerCase : unit & 0xFF;
+  }
+
+  /**
+   * Like {@link #react} over the first {@code size} units, skipping the units of the given type.
+   */
+  private static int reactWithout(final byte[] units, final int size, final int type, final byte[] stack) {
+    int result = 0;
+    for (int i = 0; i < size; i++) {
+      byte unit = units[i];
+      if (typeOf(unit) == type) {
+        continue;
+      }
+      if (result > 0 && reacts(stack[result - 1], unit)) {
+        result--;
+      } else {
+        stack[result++] = unit;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reduces the units at the start of the array itself, returns the reduced length.
+   */
+  private static int reduceInPlace(final byte[] units, final Engine engine) {
+    return engine == Engine.PARALLEL
+           ? reduceInParallel(units, PARALLEL_THRESHOLD)
+           : react(units, 0, units.length, units, 0);
+  }
+
+  /**
+   * Reactions are associative: reducing two halves on their own and then letting the end of the left one react
+   * with the start of the right one gives the same result as reducing the whole.
+   */
+  static int reduceInParallel(final byte[] units, final int threshold) {
+    return ForkJoinPool.commonPool().invoke(new ReduceTask(units, 0, units.length, threshold));
+  }
+
+  /**
+   * Cancels the end of the reduced left part against the start of the reduced right part, then moves what is left
+   * of the right part next to the left one. Returns the length of the merged part, which starts at {@code leftStart}.
+   */
+  private static int merge(final byte[] units, final int leftStart, final int leftSize,
+                           final int rightStart, final int rightSize) {
+    int left = leftStart + leftSize;
+    int right = rightStart;
+    int rightEnd = rightStart + rightSize;
+    while (left > leftStart && right < rightEnd && reacts(units[left - 1], units[right])) {
+      left--;
+      right++;
+    }
+    System.arraycopy(units, right, units, left, rightEnd - right);
+    return left - leftStart + rightEnd - right;
+  }
+
+  /**
+   * Reduces units[from, to) in place, the result starts at {@code from}.
+   */
+  private static final class ReduceTask extends RecursiveTask<Integer> {
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] units;
+    private final int from;
+    private final int threshold;
+    private final int to;
+
+    ReduceTask(final byte[] units, final int from, final int to, final int threshold) {
+      this.units = units;
+      this.from = from;
+      this.to = to;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected Integer compute() {
+      if (to - from <= threshold) {
+        int top = from;
+        for (int i = from; i < to; i++) {
+          byte unit = units[i];
+          if (top > from && reacts(units[top - 1], unit)) {
+            top--;
+          } else {
+            units[top++] = unit;
+          }
+        }
+        return top - from;
+      }
+      int middle = (from + to) >>> 1;
+      ReduceTask right = new ReduceTask(units, middle, to, threshold);
+      right.fork();
+      int leftSize = new ReduceTask(units, from, middle, threshold).compute();
+      return merge(units, from, leftSize, middle, right.join());
+    }
+  }
+
+  private String reduceWithRegex(final String input) {
     Matcher matcher = REGEX.matcher(input);
     String result = input;
 
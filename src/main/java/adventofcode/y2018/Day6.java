@@ -10,8 +10,10 @@ import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.IntStream.range;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
+import com.google.common.collect.BoundType;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Range;
@@ -22,6 +24,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -146,7 +149,31 @@ public class Day6 {
     @ParameterizedTest
     @MethodSource
     public void part1examples(final List<String> input, String expected) {
-      assertThat(new Day6(input).part1()).isEqualTo(expected);
+      for (AreaEngine engine : AreaEngine.values()) {
+        assertThat(new Day6(input).part1(engine)).as(engine.name()).isEqualTo(expected);
+      }
+    }
+
+    @Test
+    public void areaEnginesOnGeneratedCoordinates() {
+      for (long seed = 0; seed < 10; seed++) {
+        List<String> input = Generators.coordinates(seed, 30, 60).collect(toList());
+        input.add("30, 30");
+        input.add("30, 30");
+        String expected = new Day6(input).part1(AreaEngine.SORTED_DISTANCES);
+        for (AreaEngine engine : AreaEngine.values()) {
+          assertThat(new Day6(input).part1(engine)).as("%s seed %s", engine, seed).isEqualTo(expected);
+        }
+      }
+    }
+
+    @Test
+    public void noFiniteArea() {
+      List<String> input = asList("1, 1", "1, 1", "3, 3", "0, 4");
+      for (AreaEngine engine : AreaEngine.values()) {
+        assertThatThrownBy(() -> new Day6(input).part1(engine)).as(engine.name())
+                                                              .isInstanceOf(IllegalStateException.class);
+      }
     }
 
     @Test
@@ -159,7 +186,25 @@ public class Day6 {
     @ParameterizedTest
     @MethodSource
     public void part2examples(final List<String> input, String expected) {
-      assertThat(new Day6(input).part2(Range.lessThan(32))).isEqualTo(expected);
+      for (RegionEngine engine : RegionEngine.values()) {
+        assertThat(new Day6(input).part2(Range.lessThan(32), engine)).as(engine.name()).isEqualTo(expected);
+      }
+    }
+
+    @Test
+    public void regionEnginesOnGeneratedCoordinates() {
+      List<Range<Integer>> ranges = asList(Range.lessThan(1500), Range.atMost(1500), Range.closed(1200, 1600),
+                                           Range.open(1200, 1600), Range.atLeast(2000), Range.greaterThan(2000),
+                                           Range.closedOpen(1400, 1400), Range.all());
+      for (long seed = 0; seed < 5; seed++) {
+        List<String> input = Generators.coordinates(seed, 30, 60).collect(toList());
+        for (Range<Integer> range : ranges) {
+          String expected = new Day6(input).part2(range, RegionEngine.DISTANCE_GRID);
+          for (RegionEngine engine : RegionEngine.values()) {
+            assertThat(new Day6(input).part2(range, engine)).as("%s %s seed %s", engine, range, seed).isEqualTo(expected);
+          }
+        }
+      }
     }
 
     @Test
@@ -185,6 +230,30 @@ public class Day6 {
     }
   }
 
+  public enum AreaEngine {
+    /**
+     * Sorts all the coordinates by distance, for every cell of the grid.
+     */
+    SORTED_DISTANCES,
+    /**
+     * Breadth first search from all the coordinates at once, one visit per cell.
+     */
+    MULTI_SOURCE_BFS
+  }
+
+  public enum RegionEngine {
+    /**
+     * Sums the distances to all the coordinates, for every cell of the grid.
+     */
+    DISTANCE_GRID,
+    /**
+     * Manhattan distance is separable: sums of distances along each axis, combined by counting pairs of sums.
+     */
+    SEPARABLE_SUMS
+  }
+
+  private static final int TIE = -1;
+  private static final int UNVISITED = -2;
   private static final Pattern REGEX = Pattern.compile("(\\d+),\\s+(\\d+)");
   private final List<Point> points;
 
@@ -204,7 +273,22 @@ public class Day6 {
                      .collect(toList());
   }
 
-  private String part1() {
+  String part1() {
+    return part1(AreaEngine.MULTI_SOURCE_BFS);
+  }
+
+  String part1(final AreaEngine engine) {
+    switch (engine) {
+      case SORTED_DISTANCES:
+        return largestAreaBySortedDistances();
+      case MULTI_SOURCE_BFS:
+        return largestAreaByBfs();
+      default:
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+  }
+
+  private String largestAreaBySortedDistances() {
     Point[][] grid = createGridWithMinDistance(points);
     //printGrid(grid);
 
@@ -220,6 +304,96 @@ public class Day6 {
     return String.valueOf(maxPoint.getCount());
   }
 
+  /**
+   * With no obstacles, BFS distances are Manhattan distances. The coordinates closest to a cell are exactly
+   * the ones closest to its neighbours one step nearer, so a cell reached at the same distance from two different
+   * owners, or from a tie, is a tie too: each cell gets its exact label on its single visit.
+   * Duplicated coordinates tie everywhere and own no area: like with sorted distances, they are not candidates.
+   */
+  private String largestAreaByBfs() {
+    int rows = max(points, comparing(Point::getRow)).getRow() + 1;
+    int columns = max(points, comparing(Point::getColumn)).getColumn() + 1;
+    int[] owners = labelByBfs(rows, columns);
+
+    int[] areas = new int[points.size()];
+    boolean[] infinite = new boolean[points.size()];
+    for (int cell = 0; cell < owners.length; cell++) {
+      int owner = owners[cell];
+      if (owner == TIE) {
+        continue;
+      }
+      areas[owner]++;
+      int row = cell / columns;
+      int column = cell % columns;
+      if (row == 0 || row == rows - 1 || column == 0 || column == columns - 1) {
+        infinite[owner] = true;
+      }
+    }
+
+    int result = range(0, areas.length).filter(owner -> areas[owner] > 0 && !infinite[owner])
+                                       .map(owner -> areas[owner])
+                                       .max()
+                                       .orElseThrow(IllegalStateException::new);
+    System.out.println("max area: " + result);
+    return String.valueOf(result);
+  }
+
+  /**
+   * Index in {@link #points} of the closest coordinate for each cell, row by row, or {@link #TIE}.
+   */
+  private int[] labelByBfs(final int rows, final int columns) {
+    int[] owners = new int[rows * columns];
+    int[] distances = new int[rows * columns];
+    int[] queue = new int[rows * columns];
+    Arrays.fill(owners, UNVISITED);
+    int head = 0;
+    int tail = 0;
+    for (int i = 0; i < points.size(); i++) {
+      int cell = points.get(i).getRow() * columns + points.get(i).getColumn();
+      if (owners[cell] == UNVISITED) {
+        owners[cell] = i;
+        queue[tail++] = cell;
+      } else {
+        owners[cell] = TIE;
+      }
+    }
+
+    while (head < tail) {
+      int cell = queue[head++];
+      int row = cell / columns;
+      int column = cell % columns;
+      int owner = owners[cell];
+      int distance = distances[cell] + 1;
+      if (row > 0) {
+        tail = visit(cell - columns, owner, distance, owners, distances, queue, tail);
+      }
+      if (row < rows - 1) {
+        tail = visit(cell + columns, owner, distance, owners, distances, queue, tail);
+      }
+      if (column > 0) {
+        tail = visit(cell - 1, owner, distance, owners, distances, queue, tail);
+      }
+      if (column < columns - 1) {
+        tail = visit(cell + 1, owner, distance, owners, distances, queue, tail);
+      }
+    }
+    return owners;
+  }
+
+  private static int visit(final int cell, final int owner, final int distance,
+                           final int[] owners, final int[] distances, final int[] queue, final int tail) {
+    if (owners[cell] == UNVISITED) {
+      owners[cell] = owner;
+      distances[cell] = distance;
+      queue[tail] = cell;
+      return tail + 1;
+    }
+    if (distances[cell] == distance && owners[cell] != owner) {
+      owners[cell] = TIE;
+    }
+    return tail;
+  }
+
   private Multiset<Point> countByPoint(final Point[][] grid) {
     Multiset<Point> result = HashMultiset.create();
 
@@ -253,7 +427,9 @@ public class Day6 {
     return result;
   }
 
-  private Point[][] createGridWithMinDistance(final List<Point> input) {
+  private Point[][] createGridWithMinDistance(final List<Point> points) {
+    // sorted over and over: work on a copy, not on the parsed coordinates
+    List<Point> input = new ArrayList<>(points);
     int maxRow = max(input, comparing(Point::getRow)).getRow();
     int maxColumn = max(input, comparing(Point::getColumn)).getColumn();
 
@@ -282,15 +458,89 @@ public class Day6 {
     }
   }
 
-  private String part2(final Range<Integer> validRange) {
-    Integer[][] grid = createGridWithSumOfDistances(points);
-    //printGrid(grid);
+  String part2(final Range<Integer> validRange) {
+    return part2(validRange, RegionEngine.SEPARABLE_SUMS);
+  }
 
-    long count = countValuesWithinRange(grid, validRange);
+  String part2(final Range<Integer> validRange, final RegionEngine engine) {
+    long count;
+    switch (engine) {
+      case DISTANCE_GRID:
+        count = countWithDistanceGrid(validRange);
+        break;
+      case SEPARABLE_SUMS:
+        count = countWithSeparableSums(validRange);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
     System.out.printf("Values in %s are %d%n", validRange, count);
     return String.valueOf(count);
   }
 
+  /**
+   * The sum of distances of a cell is rowSums[row] + columnSums[column]. Once both 1D sums are sorted, the cells
+   * within the range are counted with two pointers, without ever building the grid: O(W log W + H log H).
+   */
+  private long countWithSeparableSums(final Range<Integer> range) {
+    long[] rowSums = sumsOfDistances(points.stream().mapToInt(Point::getRow).toArray());
+    long[] columnSums = sumsOfDistances(points.stream().mapToInt(Point::getColumn).toArray());
+    Arrays.sort(rowSums);
+    Arrays.sort(columnSums);
+
+    long result = range.hasUpperBound()
+                  ? countSumsAtMost(rowSums, columnSums, range.upperEndpoint() - (range.upperBoundType() == BoundType.OPEN ? 1L : 0L))
+                  : (long) rowSums.length * columnSums.length;
+    if (range.hasLowerBound()) {
+      result -= countSumsAtMost(rowSums, columnSums,
+                                range.lowerEndpoint() - (range.lowerBoundType() == BoundType.CLOSED ? 1L : 0L));
+    }
+    return Math.max(0, result);
+  }
+
+  /**
+   * Sum of the distances to all the coordinates, for each position from 0 to the highest coordinate. Moving one step
+   * up brings every coordinate at or below the position one step further, and the others one step closer.
+   */
+  private static long[] sumsOfDistances(final int[] coordinates) {
+    int[] counts = new int[Arrays.stream(coordinates).max().orElse(0) + 1];
+    long sum = 0;
+    for (int coordinate : coordinates) {
+      counts[coordinate]++;
+      sum += coordinate;
+    }
+    long[] result = new long[counts.length];
+    int atOrBelow = 0;
+    for (int position = 0; position < result.length; position++) {
+      result[position] = sum;
+      atOrBelow += counts[position];
+      sum += atOrBelow - (coordinates.length - atOrBelow);
+    }
+    return result;
+  }
+
+  /**
+   * Pairs (x, y) of the two sorted arrays with x + y <= limit.
+   */
+  private static long countSumsAtMost(final long[] xs, final long[] ys, final long limit) {
+    long result = 0;
+    int y = ys.length - 1;
+    for (long x : xs) {
+      while (y >= 0 && x + ys[y] > limit) {
+        y--;
+      }
+      result += y + 1;
+    }
+    return result;
+  }
+
+  private long countWithDistanceGrid(final Range<Integer> validRange) {
+    Integer[][] grid = createGridWithSumOfDistances(points);
+    //printGrid(grid);
+
+    return countValuesWithinRange(grid, validRange);
+  }
+
   private long countValuesWithinRange(final Integer[][] input, final Range<Integer> range) {
     return range(0, input.length).boxed()
                                  .flatMap(row -> Arrays.stream(input[row]))
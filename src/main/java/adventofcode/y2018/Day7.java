@@ -173,7 +173,7 @@ public class Day7 {
     });
   }
 
-  private String part1() {
+  String part1() {
     System.out.println(graph);
 
     Set<Character> roots = difference(graph.keySet(), newHashSet(graph.values()));
@@ -216,7 +216,7 @@ public class Day7 {
     }
   }
 
-  private String part2(final int workersCount, final Function<Character, Integer> taskTimeProvider) {
+  String part2(final int workersCount, final Function<Character, Integer> taskTimeProvider) {
     System.out.println(graph);
     int taskCount = Sets.union(graph.keySet(), newHashSet(graph.values())).size();
 
@@ -3,19 +3,14 @@ package adventofcode.y2018;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Arrays.asList;
-import static java.util.stream.Collectors.toCollection;
-import static java.util.stream.Collectors.toList;
 import static java.util.stream.IntStream.range;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
-import java.util.Arrays;
-import java.util.Deque;
-import java.util.LinkedList;
+import java.nio.IntBuffer;
 import java.util.List;
-import java.util.Queue;
 import java.util.regex.Pattern;
 
 /*
@@ -107,23 +102,21 @@ public class Day8 {
 
   private static final Pattern REGEX = Pattern.compile("Step (\\w) must.*(\\w+) can begin");
 
-  private final Deque<Integer> items;
+  private final int[] items;
 
   public Day8(final List<String> inputLines) {
     checkArgument(inputLines.size() == 1);
-    items = Arrays.stream(inputLines.get(0).split(" "))
-                  .map(Integer::parseInt)
-                  .collect(toCollection(LinkedList::new));
+    items = NumberParser.parseInts(inputLines.get(0));
   }
 
-  private int computeMetadataSum(final Queue<Integer> input) {
-    if (input.isEmpty()) {
+  private int computeMetadataSum(final IntBuffer input) {
+    if (!input.hasRemaining()) {
       return 0;
     }
-    checkArgument(input.size() >= 3);
+    checkArgument(input.remaining() >= 3);
 
-    Integer childrenCount = input.poll();
-    Integer metadataCount = input.poll();
+    int childrenCount = input.get();
+    int metadataCount = input.get();
 
     int childrenValue = range(0, childrenCount).map(i -> computeMetadataSum(input)).sum();
 
@@ -131,40 +124,40 @@ public class Day8 {
     return value + childrenValue;
   }
 
-  private Integer getChildValues(final Queue<Integer> input) {
-    if (input.isEmpty()) {
+  private int getChildValues(final IntBuffer input) {
+    if (!input.hasRemaining()) {
       return 0;
     }
-    checkArgument(input.size() >= 3);
+    checkArgument(input.remaining() >= 3);
 
-    Integer childrenCount = input.poll();
-    Integer metadataCount = input.poll();
-    List<Integer> children = range(0, childrenCount)
-      .mapToObj(i -> getChildValues(input))
-      .collect(toList());
+    int childrenCount = input.get();
+    int metadataCount = input.get();
+    int[] children = range(0, childrenCount)
+      .map(i -> getChildValues(input))
+      .toArray();
 
-    checkState(children.size() == childrenCount);
+    checkState(children.length == childrenCount);
 
     if (childrenCount == 0) {
       return pollAndSum(input, metadataCount);
     }
 
-    return range(0, metadataCount).mapToObj(i -> input.poll())
-                                  .filter(index -> index <= children.size())
-                                  .mapToInt(index -> children.get(index - 1))
+    return range(0, metadataCount).map(i -> input.get())
+                                  .filter(index -> index <= children.length)
+                                  .map(index -> children[index - 1])
                                   .sum();
   }
 
-  private String part1() {
-    return String.valueOf(computeMetadataSum(items));
+  String part1() {
+    return String.valueOf(computeMetadataSum(IntBuffer.wrap(items)));
   }
 
-  private String part2() {
-    return String.valueOf(getChildValues(items));
+  String part2() {
+    return String.valueOf(getChildValues(IntBuffer.wrap(items)));
   }
 
-  private int pollAndSum(final Queue<Integer> input, final Integer count) {
-    return range(0, count).map(i -> input.poll()).sum();
+  private int pollAndSum(final IntBuffer input, final int count) {
+    return range(0, count).map(i -> input.get()).sum();
   }
 
 }
@@ -149,15 +149,15 @@ public class Day9 {
     scores = new long[playersCount];
   }
 
-  private String part1() {
+  String part1() {
     return String.valueOf(solve(marblesCount));
   }
 
-  private String part2() {
+  String part2() {
     return String.valueOf(solve(marblesCount * 100));
   }
 
-  private long solve(final int marblesCount) {
+  long solve(final int marblesCount) {
     final Board board = new Board();
     board.add(0);
     for (int marble = 1; marble <= marblesCount; marble++) {
@@ -0,0 +1,682 @@
+package adventofcode.y2018;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Long.parseLong;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Seeded, deterministic generators of valid puzzle inputs of any size.
+ * Line oriented formats are produced as lazy streams, single line formats (polymers, license trees) are written
+ * to an {@link Appendable} so that they never need to fit in memory.
+ * <p>
+ * Usage: {@code Generators <day> <size> <seed> <output file>}
+ */
+public final class Generators {
+
+  @Nested
+  public static class GeneratorsTest {
+
+    @Test
+    public void sameSeedSameOutput() {
+      assertThat(claims(42, 100, 1000, 30).collect(toList())).isEqualTo(claims(42, 100, 1000, 30).collect(toList()));
+      assertThat(guardLogs(42, 100, 10).collect(toList())).isEqualTo(guardLogs(42, 100, 10).collect(toList()));
+      assertThat(polymerLine(42, 1000)).isEqualTo(polymerLine(42, 1000));
+      assertThat(polymerLine(42, 1000)).isNotEqualTo(polymerLine(43, 1000));
+    }
+
+    @Test
+    public void boxIdsHaveOneNearDuplicatePair() {
+      List<String> ids = boxIds(42, 500, 26).collect(toList());
+      assertThat(ids).hasSize(500);
+      assertThat(new Day2Part2(ids).solve()).hasSize(25);
+    }
+
+    @Test
+    public void claimsHaveExactlyOneIntactClaim() {
+      for (int count : new int[]{1, 3, 4, 5, 6, 1000, 1001}) {
+        List<String> claims = claims(2018, count, 200, 20).collect(toList());
+        assertThat(claims).hasSize(count);
+        assertThat(new Day3(claims).part2()).as("%s claims", count).isEqualTo("1");
+        ClaimFabric fabric = new ClaimFabric();
+        claims.forEach(fabric::addClaim);
+        assertThat(fabric.intactClaims()).as("%s claims", count).containsExactly(1);
+      }
+    }
+
+    @Test
+    public void guardLogsAreSolvable() {
+      List<String> logs = guardLogs(42, 500, 20).collect(toList());
+      assertThat(logs).isNotEqualTo(logs.stream().sorted().collect(toList()));
+      assertThat(new Day4(logs).part1()).isNotEmpty();
+      assertThat(new Day4(logs).part2()).isNotEmpty();
+    }
+
+    @Test
+    public void frequenciesRepeatAfterRequestedPasses() {
+      for (int count : new int[]{2, 3, 10, 1001}) {
+        for (int passes : new int[]{1, 7, 50}) {
+          int[] changes = NumberParser.parseInts(frequencies(42, count, passes).collect(toList()));
+          assertThat(Arrays.stream(changes).sum()).isPositive();
+          IntHashSet seen = new IntHashSet();
+          int frequency = 0;
+          long changesApplied = 0;
+          while (seen.add(frequency)) {
+            frequency += changes[(int) (changesApplied++ % count)];
+          }
+          assertThat((changesApplied - 1) / count).as("%s changes, %s passes", count, passes).isEqualTo(passes);
+        }
+      }
+    }
+
+    @Test
+    public void polymerHasRequestedLength() {
+      assertThat(polymerLine(42, 12345)).hasSize(12345).matches("[a-zA-Z]+");
+    }
+
+    @Test
+    public void polymerReducesToItsSurvivors() {
+      for (long length : new long[]{1, 2, 3, 1000, 50_000}) {
+        String polymer = polymerLine(42, length);
+        String reduced = new Day5(asList(polymer)).reducePolymer(polymer);
+        assertThat(reduced.length()).as("length %s", length).isBetween((int) (length * 0.2), (int) (length * 0.3) + 2);
+      }
+    }
+
+    @Test
+    public void stepGraphCoversAllSteps() {
+      List<String> steps = stepGraph(42, 26, 0.1).collect(toList());
+      assertThat(new Day7(steps).part1()).hasSize(26);
+    }
+
+    @Test
+    public void licenseTreeHasRequestedNodes() {
+      StringBuilder tree = new StringBuilder();
+      licenseTree(42, 1000, tree);
+      assertThat(licenseTreeNodes(tree.toString())).isEqualTo(1000);
+      assertThat(new Day8(asList(tree.toString())).part1()).isNotEmpty();
+      assertThat(new Day8(asList(tree.toString())).part2()).isNotEmpty();
+    }
+
+    @Test
+    public void particlesConvergeAfterRequestedSteps() {
+      List<String> particles = particles(42, 300, 5000).collect(toList());
+      assertThat(new Day10(particles).solve()).isEqualTo(5000);
+    }
+
+    private static String polymerLine(final long seed, final long length) {
+      StringBuilder result = new StringBuilder();
+      polymer(seed, length, result);
+      return result.toString();
+    }
+  }
+
+  private static final int FREQUENCY_STRIDE = 7;
+  private static final int GUARD_LOG_WINDOW = 1 << 16;
+  private static final int MAX_NAPS_PER_NIGHT = 3;
+  private static final int MAX_RECORDS_PER_NIGHT = 1 + 2 * MAX_NAPS_PER_NIGHT;
+  private static final int FREQUENCY_WINDOW = 4;
+  private static final int MAX_LICENSE_CHILDREN = 8;
+  private static final int MAX_POLYMER_BLOCK_PAIRS = 800;
+  private static final double POLYMER_CLIMB = 0.7;
+  private static final int POLYMER_BUFFER_SIZE = 1 << 16;
+  private static final double POLYMER_SURVIVORS = 0.23;
+
+  private Generators() {
+  }
+
+  /**
+   * Day 1: signed frequency changes such as {@code +6} or {@code -3}.
+   */
+  static Stream<String> frequencies(final long seed, final int count) {
+    Random random = new Random(seed);
+    return Stream.generate(() -> {
+      int value = 1 + random.nextInt(100);
+      return random.nextBoolean() ? "+" + value : "-" + value;
+    }).limit(count);
+  }
+
+  /**
+   * Day 1: frequency changes shaped like the puzzle input, which first repeats after exactly {@code passes} passes.
+   * <p>
+   * The first part of the list wanders over distinct multiples of a stride, with small steps. A big jump then shifts
+   * the walk by {@code passes} times the drift and the rest of the list replays a piece of the first part.
+   * The drift is larger than the range of the first part and prime with the stride, so only a replayed frequency
+   * can reach its original, {@code passes} passes later. Only a window of the walk is kept in memory.
+   */
+  static Stream<String> frequencies(final long seed, final int count, final int passes) {
+    checkArgument(count >= 2 && passes > 0, "Invalid count %s or passes %s", count, passes);
+    int replayed = Math.max(1, count / 3);
+    int first = count - replayed;
+    int drift = first % FREQUENCY_STRIDE == 0 ? first + 1 : first;
+    checkArgument((long) passes * drift + (long) FREQUENCY_STRIDE * first <= Integer.MAX_VALUE / 2,
+                  "Frequencies of %s changes over %s passes do not fit an int", count, passes);
+    Random random = new Random(seed);
+    long walkSeed = random.nextLong();
+    int skipped = random.nextInt(first - replayed + 1);
+    return Stream.generate(new Supplier<String>() {
+      private final ShuffledRange walk = new ShuffledRange(walkSeed, first);
+      private final int origin = walk.next();
+      private ShuffledRange replay;
+      private int index;
+      private int previous;
+
+      @Override
+      public String get() {
+        index++;
+        int next;
+        if (index == count) {
+          next = drift;
+        } else if (index < first) {
+          next = frequency(walk.next());
+        } else {
+          if (replay == null) {
+            replay = new ShuffledRange(walkSeed, first);
+            for (int i = 0; i < skipped; i++) {
+              replay.next();
+            }
+          }
+          next = frequency(replay.next()) - passes * drift;
+        }
+        int change = next - previous;
+        previous = next;
+        return change < 0 ? String.valueOf(change) : "+" + change;
+      }
+
+      private int frequency(final int position) {
+        return FREQUENCY_STRIDE * (position - origin);
+      }
+    }).limit(count);
+  }
+
+  /**
+   * Day 2: random lowercase box IDs, exactly one pair of them differs by a single character.
+   */
+  static Stream<String> boxIds(final long seed, final int count, final int length) {
+    checkArgument(count >= 2, "At least two box IDs are required: %s", count);
+    Random random = new Random(seed);
+    int original = random.nextInt(count - 1);
+    int copy = original + 1 + random.nextInt(count - original - 1);
+    String[] originalId = new String[1];
+    int[] index = {0};
+    return Stream.generate(() -> {
+      int current = index[0]++;
+      if (current == copy) {
+        char[] chars = originalId[0].toCharArray();
+        int position = random.nextInt(length);
+        chars[position] = (char) ('a' + (chars[position] - 'a' + 1 + random.nextInt(25)) % 26);
+        return new String(chars);
+      }
+      String id = randomLetters(random, length);
+      if (current == original) {
+        originalId[0] = id;
+      }
+      return id;
+    }).limit(count);
+  }
+
+  /**
+   * Day 3: claims on a square fabric. Claim #1 is the only one that does not overlap: every other claim comes
+   * with an overlapping twin and none of them touches claim #1. With an even count, the last claim is a second twin
+   * of claim #2.
+   */
+  static Stream<String> claims(final long seed, final int count, final int fabricSize, final int maxSide) {
+    checkArgument(count != 2, "Two claims cannot have exactly one intact claim");
+    checkArgument(fabricSize > 3 * maxSide, "Fabric of size %s is too small for claims up to %s", fabricSize, maxSide);
+    Random random = new Random(seed);
+    int reserved = fabricSize - maxSide;
+    return Stream.generate(new Supplier<String>() {
+      private int id = 0;
+      private int[] second;
+      private int[] twin;
+
+      @Override
+      public String get() {
+        id++;
+        if (id == 1) {
+          return claim(id, reserved, reserved, 1 + random.nextInt(maxSide), 1 + random.nextInt(maxSide));
+        }
+        if (twin != null) {
+          int[] result = twin;
+          twin = null;
+          return claim(id, result[0], result[1], result[2], result[3]);
+        }
+        if (id == count) {
+          int[] overlapping;
+          do {
+            overlapping = shifted(second);
+          } while (touchesReserved(overlapping));
+          return claim(id, overlapping[0], overlapping[1], overlapping[2], overlapping[3]);
+        }
+        int[] fresh;
+        int[] overlapping;
+        do {
+          fresh = new int[]{random.nextInt(fabricSize - 2 * maxSide), random.nextInt(fabricSize - 2 * maxSide),
+                            1 + random.nextInt(maxSide), 1 + random.nextInt(maxSide)};
+          overlapping = shifted(fresh);
+        } while (touchesReserved(fresh) || touchesReserved(overlapping));
+        twin = overlapping;
+        if (second == null) {
+          second = fresh;
+        }
+        return claim(id, fresh[0], fresh[1], fresh[2], fresh[3]);
+      }
+
+      private int[] shifted(final int[] claim) {
+        int left = claim[0] + random.nextInt(2 * claim[2] - 1) - claim[2] + 1;
+        int top = claim[1] + random.nextInt(2 * claim[3] - 1) - claim[3] + 1;
+        return new int[]{Math.max(0, left), Math.max(0, top), claim[2], claim[3]};
+      }
+
+      private boolean touchesReserved(final int[] claim) {
+        return claim[0] + claim[2] > reserved && claim[1] + claim[3] > reserved;
+      }
+    }).limit(count);
+  }
+
+  /**
+   * Day 4: guard logs, one shift per night, starting from 1518-01-01. Like the puzzle input, the records are
+   * shuffled: each one is picked at random among a window of the next {@value #GUARD_LOG_WINDOW} records, so only
+   * the window is held in memory and logs shorter than the window are fully shuffled.
+   * The 4 digit year caps the logs at about 3 million nights.
+   */
+  static Stream<String> guardLogs(final long seed, final int nights, final int guards) {
+    checkArgument(nights <= 3_000_000, "Too many nights for a 4 digit year: %s", nights);
+    Random random = new Random(seed);
+    int[] guardIds = random.ints(guards, 1, 4000).toArray();
+    LocalDate first = LocalDate.of(1518, 1, 1);
+    Iterator<String> records = new Iterator<String>() {
+      private final String[] window = new String[GUARD_LOG_WINDOW];
+      private int night;
+      private int size;
+
+      @Override
+      public boolean hasNext() {
+        refill();
+        return size > 0;
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int i = random.nextInt(size);
+        String result = window[i];
+        window[i] = window[--size];
+        window[size] = null;
+        return result;
+      }
+
+      private void refill() {
+        while (night < nights && size + MAX_RECORDS_PER_NIGHT <= window.length) {
+          for (String record : newNight(random, first.plusDays(night++), guardIds[random.nextInt(guards)])) {
+            window[size++] = record;
+          }
+        }
+      }
+    };
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(records, Spliterator.ORDERED | Spliterator.NONNULL),
+                                false);
+  }
+
+  private static List<String> newNight(final Random random, final LocalDate date, final int guardId) {
+    String shift = random.nextBoolean()
+                   ? String.format("[%s 23:%02d] Guard #%d begins shift", date.minusDays(1), 45 + random.nextInt(15), guardId)
+                   : String.format("[%s 00:%02d] Guard #%d begins shift", date, random.nextInt(5), guardId);
+    List<String> result = new ArrayList<>();
+    result.add(shift);
+    int[] minutes = random.ints(5, 60).distinct().limit(2L * random.nextInt(MAX_NAPS_PER_NIGHT + 1)).sorted().toArray();
+    for (int i = 0; i + 1 < minutes.length; i += 2) {
+      result.add(String.format("[%s 00:%02d] falls asleep", date, minutes[i]));
+      result.add(String.format("[%s 00:%02d] wakes up", date, minutes[i + 1]));
+    }
+    return result;
+  }
+
+  /**
+   * Day 5: a polymer of {@code length} units shaped like the puzzle input. About a quarter of the units survive the
+   * reactions; the others come in blocks of nested pairs, up to hundreds of levels deep, that react from the inside
+   * out. No unit ever reacts with a survivor, so the reduced polymer is exactly the survivors.
+   */
+  static void polymer(final long seed, final long length, final Appendable out) {
+    Random random = new Random(seed);
+    char[] buffer = new char[POLYMER_BUFFER_SIZE];
+    char[] opened = new char[MAX_POLYMER_BLOCK_PAIRS];
+    char survivor = 0;
+    long survivors = 0;
+    long written = 0;
+    int size = 0;
+    try {
+      while (written < length) {
+        long remaining = length - written;
+        if (remaining == 1 || survivors < POLYMER_SURVIVORS * written) {
+          survivor = randomUnit(random, opposite(survivor));
+          buffer[size++] = survivor;
+          survivors++;
+          written++;
+        } else {
+          // the block leaves room for the survivors still to come
+          long maxPairs = Math.max(1, (long) (remaining * (1 - POLYMER_SURVIVORS) / 2));
+          int pairs = 1 + random.nextInt((int) Math.min(MAX_POLYMER_BLOCK_PAIRS, maxPairs));
+          int depth = 0;
+          for (int step = 0; step < 2 * pairs; step++) {
+            boolean open = depth < 2 * pairs - step && (depth == 0 || random.nextDouble() < POLYMER_CLIMB);
+            if (open) {
+              opened[depth] = randomUnit(random, opposite(depth == 0 ? survivor : opened[depth - 1]));
+              buffer[size++] = opened[depth++];
+            } else {
+              buffer[size++] = opposite(opened[--depth]);
+            }
+          }
+          written += 2 * pairs;
+        }
+        if (size > buffer.length - 2 * MAX_POLYMER_BLOCK_PAIRS) {
+          out.append(CharBuffer.wrap(buffer, 0, size));
+          size = 0;
+        }
+      }
+      out.append(CharBuffer.wrap(buffer, 0, size));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static char randomUnit(final Random random, final char excluded) {
+    char result;
+    do {
+      result = (char) ((random.nextBoolean() ? 'a' : 'A') + random.nextInt(26));
+    } while (result == excluded);
+    return result;
+  }
+
+  /**
+   * Same type, opposite polarity; the opposite of no unit (0) is not a letter.
+   */
+  private static char opposite(final char unit) {
+    return (char) (unit ^ ('a' - 'A'));
+  }
+
+  /**
+   * Day 6: coordinates within a square grid.
+   */
+  static Stream<String> coordinates(final long seed, final int count, final int gridSize) {
+    Random random = new Random(seed);
+    return Stream.generate(() -> random.nextInt(gridSize) + ", " + random.nextInt(gridSize))
+                 .limit(count);
+  }
+
+  /**
+   * Day 7: a random DAG over the first {@code steps} letters, every step after the first one in topological order has
+   * at least one predecessor. Steps are single letters, so a graph cannot have more than 26 of them.
+   */
+  static Stream<String> stepGraph(final long seed, final int steps, final double density) {
+    checkArgument(steps >= 2 && steps <= 26, "Steps must be between 2 and 26: %s", steps);
+    Random random = new Random(seed);
+    List<Character> order = new ArrayList<>();
+    for (int i = 0; i < steps; i++) {
+      order.add((char) ('A' + i));
+    }
+    Collections.shuffle(order, random);
+    List<String> result = new ArrayList<>();
+    for (int to = 1; to < steps; to++) {
+      int mandatory = random.nextInt(to);
+      for (int from = 0; from < to; from++) {
+        if (from == mandatory || random.nextDouble() < density) {
+          result.add(String.format("Step %s must be finished before step %s can begin.", order.get(from), order.get(to)));
+        }
+      }
+    }
+    Collections.shuffle(result, random);
+    return result.stream();
+  }
+
+  /**
+   * Day 8: a license tree with exactly {@code nodes} nodes, written as a single line of numbers.
+   * Each node splits its budget of descendants randomly among its children, which keeps the tree logarithmically deep.
+   */
+  static void licenseTree(final long seed, final int nodes, final Appendable out) {
+    checkArgument(nodes > 0, "A tree needs at least one node: %s", nodes);
+    Random random = new Random(seed);
+    Deque<LicenseNode> stack = new ArrayDeque<>();
+    try {
+      stack.push(openLicenseNode(random, nodes, out, true));
+      while (!stack.isEmpty()) {
+        LicenseNode top = stack.peek();
+        if (top.next < top.budgets.length) {
+          stack.push(openLicenseNode(random, top.budgets[top.next++], out, false));
+          continue;
+        }
+        stack.pop();
+        int children = top.budgets.length;
+        for (int i = 0; i < top.metadata; i++) {
+          appendNumber(out, children == 0 ? 1 + random.nextInt(9) : 1 + random.nextInt(children + 1), false);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static LicenseNode openLicenseNode(final Random random, final int budget, final Appendable out, final boolean first)
+    throws IOException {
+    int children = Math.min(budget - 1, 1 + random.nextInt(MAX_LICENSE_CHILDREN));
+    // split the descendants among the children, each child gets at least itself
+    int extra = budget - 1 - children;
+    int[] cuts = new int[children + 1];
+    for (int i = 1; i < children; i++) {
+      cuts[i] = random.nextInt(extra + 1);
+    }
+    cuts[children] = extra;
+    Arrays.sort(cuts, 1, Math.max(1, children));
+    int[] budgets = new int[children];
+    for (int i = 0; i < children; i++) {
+      budgets[i] = 1 + cuts[i + 1] - cuts[i];
+    }
+
+    LicenseNode result = new LicenseNode(budgets, 1 + random.nextInt(3));
+    appendNumber(out, children, first);
+    appendNumber(out, result.metadata, false);
+    return result;
+  }
+
+  private static final class LicenseNode {
+    private final int[] budgets;
+    private final int metadata;
+    private int next;
+
+    private LicenseNode(final int[] budgets, final int metadata) {
+      this.budgets = budgets;
+      this.metadata = metadata;
+    }
+  }
+
+  /**
+   * Number of nodes of a license tree.
+   */
+  static int licenseTreeNodes(final String tree) {
+    int[] numbers = NumberParser.parseInts(tree);
+    int[] position = {0};
+    return countNodes(numbers, position);
+  }
+
+  private static int countNodes(final int[] numbers, final int[] position) {
+    int children = numbers[position[0]++];
+    int metadata = numbers[position[0]++];
+    int result = 1;
+    for (int i = 0; i < children; i++) {
+      result += countNodes(numbers, position);
+    }
+    position[0] += metadata;
+    return result;
+  }
+
+  /**
+   * Day 9: a game line with a random number of players.
+   */
+  static String game(final long seed, final int marbles) {
+    Random random = new Random(seed);
+    return String.format("%d players; last marble is worth %d points", 10 + random.nextInt(491), marbles);
+  }
+
+  /**
+   * Day 10: particles that line up in a small box after exactly {@code steps} seconds.
+   */
+  static Stream<String> particles(final long seed, final int count, final int steps) {
+    Random random = new Random(seed);
+    return Stream.generate(() -> {
+      int velocityX = random.nextInt(11) - 5;
+      int velocityY = random.nextInt(11) - 5;
+      if (velocityX == 0 && velocityY == 0) {
+        velocityX = 1;
+      }
+      int x = random.nextInt(60) - velocityX * steps;
+      int y = random.nextInt(10) - velocityY * steps;
+      return String.format("position=<%6d, %6d> velocity=<%2d, %2d>", x, y, velocityX, velocityY);
+    }).limit(count);
+  }
+
+  static void write(final Stream<String> lines, final Path output) {
+    try (BufferedWriter writer = Files.newBufferedWriter(output, UTF_8)) {
+      lines.forEach(line -> {
+        try {
+          writer.write(line);
+          writer.newLine();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static void write(final Consumer<Appendable> generator, final Path output) {
+    try (Writer writer = Files.newBufferedWriter(output, UTF_8)) {
+      generator.accept(writer);
+      writer.write(System.lineSeparator());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static void main(final String[] args) {
+    checkArgument(args.length == 4, "Usage: Generators <day> <size> <seed> <output file>");
+    String day = args[0];
+    long size = parseLong(args[1]);
+    long seed = parseLong(args[2]);
+    Path output = Paths.get(args[3]);
+    int count = Math.toIntExact(Math.min(size, Integer.MAX_VALUE));
+
+    switch (day) {
+      case "1":
+        write(frequencies(seed, count), output);
+        break;
+      case "2":
+        write(boxIds(seed, count, 26), output);
+        break;
+      case "3":
+        write(claims(seed, count, 1000, 30), output);
+        break;
+      case "4":
+        write(guardLogs(seed, count, 30), output);
+        break;
+      case "5":
+        write(out -> polymer(seed, size, out), output);
+        break;
+      case "6":
+        write(coordinates(seed, count, 400), output);
+        break;
+      case "7":
+        write(stepGraph(seed, Math.min(count, 26), 0.2), output);
+        break;
+      case "8":
+        write(out -> licenseTree(seed, count, out), output);
+        break;
+      case "9":
+        write(Stream.of(game(seed, count)), output);
+        break;
+      case "10":
+        write(particles(seed, count, 10_000), output);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown day: " + day);
+    }
+  }
+
+  /**
+   * Every int of [0, end) once, in an order that only shuffles values a few positions apart: a random pick
+   * among a small window of the next values. The same seed gives the same order.
+   */
+  private static final class ShuffledRange {
+    private final int end;
+    private final Random random;
+    private final int[] window = new int[FREQUENCY_WINDOW];
+    private int filled;
+    private int nextValue;
+
+    ShuffledRange(final long seed, final int end) {
+      this.random = new Random(seed);
+      this.end = end;
+      while (filled < window.length && nextValue < end) {
+        window[filled++] = nextValue++;
+      }
+    }
+
+    int next() {
+      int i = random.nextInt(filled);
+      int result = window[i];
+      window[i] = nextValue < end ? nextValue++ : window[--filled];
+      return result;
+    }
+  }
+
+  private static void appendNumber(final Appendable out, final int number, final boolean first) throws IOException {
+    if (!first) {
+      out.append(' ');
+    }
+    out.append(String.valueOf(number));
+  }
+
+  private static String claim(final int id, final int left, final int top, final int width, final int height) {
+    return String.format("#%d @ %d,%d: %dx%d", id, left, top, width, height);
+  }
+
+  private static String randomLetters(final Random random, final int length) {
+    char[] result = new char[length];
+    for (int i = 0; i < length; i++) {
+      result[i] = (char) ('a' + random.nextInt(26));
+    }
+    return new String(result);
+  }
+}
@@ -0,0 +1,293 @@
+package adventofcode.y2018;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import adventofcode.y2018.Day4.SleepHistogram;
+import adventofcode.y2018.Day4.Window;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Day 4 guard records fed one line at a time, in any order.
+ * <p>
+ * Events are buffered by night, keyed by the date of the shift. A night is committed to the per guard histograms
+ * as soon as its guard is known and its naps pair up; a late event for a committed night takes its naps back out
+ * and commits the night again. Naps are counted within a {@link Day4.Window}, like {@link Day4} does.
+ */
+public final class GuardLog {
+
+  @Nested
+  public static class GuardLogTest {
+
+    private static final List<String> EXAMPLE = asList("[1518-11-01 00:00] Guard #10 begins shift",
+                                                       "[1518-11-01 00:05] falls asleep",
+                                                       "[1518-11-01 00:25] wakes up",
+                                                       "[1518-11-01 00:30] falls asleep",
+                                                       "[1518-11-01 00:55] wakes up",
+                                                       "[1518-11-01 23:58] Guard #99 begins shift",
+                                                       "[1518-11-02 00:40] falls asleep",
+                                                       "[1518-11-02 00:50] wakes up",
+                                                       "[1518-11-03 00:05] Guard #10 begins shift",
+                                                       "[1518-11-03 00:24] falls asleep",
+                                                       "[1518-11-03 00:29] wakes up",
+                                                       "[1518-11-04 00:02] Guard #99 begins shift",
+                                                       "[1518-11-04 00:36] falls asleep",
+                                                       "[1518-11-04 00:46] wakes up",
+                                                       "[1518-11-05 00:03] Guard #99 begins shift",
+                                                       "[1518-11-05 00:45] falls asleep",
+                                                       "[1518-11-05 00:55] wakes up");
+
+    @Test
+    public void example() {
+      for (long seed = 0; seed < 10; seed++) {
+        List<String> lines = new ArrayList<>(EXAMPLE);
+        Collections.shuffle(lines, new Random(seed));
+        GuardLog log = new GuardLog();
+        lines.forEach(log::add);
+        assertThat(log.pendingNights()).isEqualTo(0);
+        assertThat(log.strategy1()).isEqualTo(240);
+        assertThat(log.strategy2()).isEqualTo(4455);
+      }
+    }
+
+    @Test
+    public void nightsWaitForTheirGuard() {
+      GuardLog log = new GuardLog();
+      log.add("[1518-11-01 00:05] falls asleep");
+      log.add("[1518-11-01 00:25] wakes up");
+      assertThat(log.pendingNights()).isEqualTo(1);
+      assertThatThrownBy(log::strategy1).isInstanceOf(IllegalStateException.class);
+
+      log.add("[1518-10-31 23:58] Guard #10 begins shift");
+      assertThat(log.pendingNights()).isEqualTo(0);
+      assertThat(log.strategy1()).isEqualTo(50);
+    }
+
+    @Test
+    public void lateNapIsRecommitted() {
+      GuardLog log = new GuardLog();
+      log.add("[1518-11-01 00:00] Guard #10 begins shift");
+      log.add("[1518-11-01 00:05] falls asleep");
+      log.add("[1518-11-01 00:10] wakes up");
+      log.add("[1518-11-02 00:00] Guard #20 begins shift");
+      log.add("[1518-11-02 00:30] falls asleep");
+      log.add("[1518-11-02 00:40] wakes up");
+      assertThat(log.strategy1()).isEqualTo(20 * 30);
+
+      log.add("[1518-11-01 00:50] wakes up");
+      assertThat(log.pendingNights()).isEqualTo(1);
+      assertThat(log.strategy1()).isEqualTo(20 * 30);
+
+      log.add("[1518-11-01 00:20] falls asleep");
+      assertThat(log.pendingNights()).isEqualTo(0);
+      assertThat(log.strategy1()).isEqualTo(10 * 5);
+    }
+
+    @Test
+    public void matchesDay4OnGeneratedLogs() {
+      for (long seed = 0; seed < 5; seed++) {
+        List<String> lines = Generators.guardLogs(seed, 500, 20).collect(toList());
+        Collections.shuffle(lines, new Random(seed));
+        GuardLog log = new GuardLog();
+        lines.forEach(log::add);
+        assertThat(String.valueOf(log.strategy1())).as("seed %s", seed).isEqualTo(new Day4(lines).part1());
+        assertThat(String.valueOf(log.strategy2())).as("seed %s", seed).isEqualTo(new Day4(lines).part2());
+      }
+    }
+
+    @Test
+    public void matchesDay4WithOtherWindows() {
+      List<Window> windows = asList(new Window(0, 60 * 60, 5 * 60), new Window(-60 * 60, 2 * 60 * 60, 60),
+                                    new Window(30 * 60, 10 * 60, 1));
+      for (Window window : windows) {
+        for (long seed = 0; seed < 3; seed++) {
+          List<String> lines = Generators.guardLogs(seed, 200, 10).collect(toList());
+          Collections.shuffle(lines, new Random(seed));
+          GuardLog log = new GuardLog(window);
+          lines.forEach(log::add);
+          Day4 day4 = new Day4(lines, Day4.Parser.PACKED, window);
+          assertThat(String.valueOf(log.strategy1())).as("%s seed %s", window, seed).isEqualTo(day4.part1());
+          assertThat(String.valueOf(log.strategy2())).as("%s seed %s", window, seed).isEqualTo(day4.part2());
+        }
+      }
+    }
+
+    @Test
+    public void napsOutsideTheWindowAreNotCounted() {
+      List<String> lines = asList("[1518-11-01 23:50] Guard #10 begins shift",
+                                  "[1518-11-02 00:30] falls asleep",
+                                  "[1518-11-02 00:31] wakes up",
+                                  "[1518-11-02 01:10] falls asleep",
+                                  "[1518-11-02 01:20] wakes up",
+                                  "[1518-11-02 23:50] Guard #10 begins shift",
+                                  "[1518-11-02 23:55] falls asleep",
+                                  "[1518-11-03 00:01] wakes up",
+                                  "[1518-11-03 01:10] falls asleep",
+                                  "[1518-11-03 01:20] wakes up");
+      GuardLog log = new GuardLog();
+      lines.forEach(log::add);
+      assertThat(log.strategy1()).isEqualTo(10 * 0);
+
+      GuardLog lateWindow = new GuardLog(new Window(30 * 60, 60 * 60, 60));
+      lines.forEach(lateWindow::add);
+      assertThat(lateWindow.strategy1()).isEqualTo(10 * 40);
+      assertThat(lateWindow.strategy2()).isEqualTo(10 * 40);
+    }
+
+    @Test
+    public void twoGuardsOnTheSameShift() {
+      GuardLog log = new GuardLog();
+      log.add("[1518-11-01 00:00] Guard #10 begins shift");
+      log.add("[1518-11-01 00:00] Guard #10 begins shift");
+      assertThatThrownBy(() -> log.add("[1518-10-31 23:50] Guard #20 begins shift"))
+        .isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  private static final int ASLEEP_BIT = 1;
+  private static final int AWAKE_BIT = 2;
+
+  private final Map<Integer, SleepHistogram> guardIdToSleep = new HashMap<>();
+  private final Map<Long, Night> nights = new HashMap<>();
+  private final Window window;
+  private int pendingNights;
+
+  public GuardLog() {
+    this(Day4.MIDNIGHT_HOUR);
+  }
+
+  GuardLog(final Window window) {
+    this.window = window;
+  }
+
+  /**
+   * Adds a record in the puzzle format. The same record can be added more than once.
+   */
+  public void add(final String line) {
+    long event = Day4.pack(line);
+    long day = Day4.shiftDateOf(event).toEpochDay();
+    Night night = nights.computeIfAbsent(day, key -> {
+      pendingNights++;
+      return new Night();
+    });
+    if (night.committed) {
+      apply(night, false);
+    }
+
+    int second = Day4.shiftSecondOf(event);
+    switch (Day4.typeOf(event)) {
+      case Day4.BEGINS_SHIFT:
+        int guardId = Day4.guardIdOf(event);
+        checkArgument(night.guardId < 0 || night.guardId == guardId,
+                      "Guards #%s and #%s both begin the shift of %s", night.guardId, guardId, Day4.shiftDateOf(event));
+        night.guardId = guardId;
+        break;
+      case Day4.FALLS_ASLEEP:
+        night.events.merge(second, ASLEEP_BIT, (x, y) -> x | y);
+        break;
+      default:
+        night.events.merge(second, AWAKE_BIT, (x, y) -> x | y);
+    }
+
+    if (night.isComplete()) {
+      apply(night, true);
+    }
+  }
+
+  /**
+   * Nights with some records but not enough to be committed yet.
+   */
+  public int pendingNights() {
+    return pendingNights;
+  }
+
+  /**
+   * Guard ID times minute, for the guard with the most minutes asleep and the minute they are most often asleep.
+   */
+  public int strategy1() {
+    checkState(!guardIdToSleep.isEmpty(), "No guard has been seen asleep yet");
+    int guardId = Day4.findMostSleepyGuardId(guardIdToSleep);
+    return guardId * guardIdToSleep.get(guardId).getMostAsleepBucket();
+  }
+
+  /**
+   * Guard ID times minute, for the guard most frequently asleep on the same minute.
+   */
+  public int strategy2() {
+    checkState(!guardIdToSleep.isEmpty(), "No guard has been seen asleep yet");
+    Map.Entry<Integer, Integer> guardAndMinute = Day4.findMostSleepyMinutePerGuard(guardIdToSleep);
+    return guardAndMinute.getKey() * guardAndMinute.getValue();
+  }
+
+  /**
+   * Adds or takes back the naps of a night.
+   */
+  private void apply(final Night night, final boolean commit) {
+    int fallsAsleepAt = 0;
+    for (Map.Entry<Integer, Integer> event : night.events.entrySet()) {
+      int second = event.getKey();
+      if ((event.getValue() & AWAKE_BIT) != 0 && window.overlaps(fallsAsleepAt, second)) {
+        SleepHistogram histogram = guardIdToSleep.computeIfAbsent(night.guardId, id -> window.newHistogram());
+        if (commit) {
+          histogram.addNap(fallsAsleepAt, second);
+        } else {
+          histogram.removeNap(fallsAsleepAt, second);
+        }
+      }
+      if ((event.getValue() & ASLEEP_BIT) != 0) {
+        fallsAsleepAt = second;
+      }
+    }
+    night.committed = commit;
+    pendingNights += commit ? -1 : 1;
+  }
+
+  /**
+   * Records of one shift: the kinds of events seen at each second from the midnight of the shift day.
+   */
+  private static final class Night {
+    private final NavigableMap<Integer, Integer> events = new TreeMap<>();
+    private boolean committed;
+    private int guardId = -1;
+
+    /**
+     * The guard is known and every nap has both ends, in order. Waking up and falling asleep again on the same
+     * second is fine.
+     */
+    boolean isComplete() {
+      if (guardId < 0) {
+        return false;
+      }
+      boolean asleep = false;
+      for (int kinds : events.values()) {
+        if ((kinds & AWAKE_BIT) != 0) {
+          if (!asleep) {
+            return false;
+          }
+          asleep = false;
+        }
+        if ((kinds & ASLEEP_BIT) != 0) {
+          if (asleep) {
+            return false;
+          }
+          asleep = true;
+        }
+      }
+      return !asleep;
+    }
+  }
+}
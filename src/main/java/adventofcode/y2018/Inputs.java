@@ -5,14 +5,36 @@ import static com.google.common.io.Resources.getResource;
 import static com.google.common.io.Resources.readLines;
 
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 
 public final class Inputs {
   static List<String> forDay(final String day) {
     try {
-      return readLines(getResource(Base.class, String.format("day-%s-input.txt", day)), UTF_8);
+      return readLines(getResource(Base.class, fileName(day)), UTF_8);
     } catch (IOException e) {
       throw new IllegalArgumentException("Unable to read the input", e);
     }
   }
+
+  /**
+   * Same input as {@link #forDay(String)}, memory mapped. Only works when resources are plain files.
+   */
+  static MappedInput mappedForDay(final String day) {
+    try {
+      return mapped(Paths.get(getResource(Base.class, fileName(day)).toURI()));
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException("Unable to read the input", e);
+    }
+  }
+
+  static MappedInput mapped(final Path path) {
+    return MappedInput.open(path);
+  }
+
+  private static String fileName(final String day) {
+    return String.format("day-%s-input.txt", day);
+  }
 }
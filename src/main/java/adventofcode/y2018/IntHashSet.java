@@ -0,0 +1,141 @@
+package adventofcode.y2018;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Open addressing (linear probing) set of primitive ints: no boxing, no entry objects.
+ * The table is kept at most half full; 0 is used as the free slot marker and tracked on its own.
+ */
+public final class IntHashSet {
+
+  @Nested
+  public static class IntHashSetTest {
+
+    @Test
+    public void addAndContains() {
+      IntHashSet set = new IntHashSet(2);
+      assertThat(set.add(0)).isTrue();
+      assertThat(set.add(-1)).isTrue();
+      assertThat(set.add(Integer.MIN_VALUE)).isTrue();
+      assertThat(set.add(0)).isFalse();
+      assertThat(set.add(-1)).isFalse();
+      assertThat(set.contains(0)).isTrue();
+      assertThat(set.contains(Integer.MIN_VALUE)).isTrue();
+      assertThat(set.contains(1)).isFalse();
+      assertThat(set.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void behavesLikeHashSet() {
+      Random random = new Random(42);
+      IntHashSet actual = new IntHashSet();
+      Set<Integer> expected = new HashSet<>();
+      for (int i = 0; i < 100_000; i++) {
+        int value = random.nextInt(50_000) - 25_000;
+        assertThat(actual.add(value)).isEqualTo(expected.add(value));
+      }
+      assertThat(actual.size()).isEqualTo(expected.size());
+      for (int i = -30_000; i < 30_000; i++) {
+        assertThat(actual.contains(i)).isEqualTo(expected.contains(i));
+      }
+    }
+  }
+
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private boolean containsZero;
+  private int mask;
+  private int size;
+  private int[] table;
+
+  public IntHashSet() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public IntHashSet(final int expectedSize) {
+    checkArgument(expectedSize >= 0, "Negative expected size: %s", expectedSize);
+    allocate(tableSizeFor(expectedSize));
+  }
+
+  /**
+   * Returns true if the value was not already in the set.
+   */
+  public boolean add(final int value) {
+    if (value == 0) {
+      boolean added = !containsZero;
+      containsZero = true;
+      size += added ? 1 : 0;
+      return added;
+    }
+    int slot = slot(value);
+    while (table[slot] != 0) {
+      if (table[slot] == value) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = value;
+    size++;
+    if (2 * size > table.length) {
+      grow();
+    }
+    return true;
+  }
+
+  public boolean contains(final int value) {
+    if (value == 0) {
+      return containsZero;
+    }
+    int slot = slot(value);
+    while (table[slot] != 0) {
+      if (table[slot] == value) {
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private void allocate(final int capacity) {
+    table = new int[capacity];
+    mask = capacity - 1;
+  }
+
+  private void grow() {
+    checkArgument(table.length < MAX_CAPACITY, "Set is full: %s values", size);
+    int[] old = table;
+    allocate(old.length * 2);
+    for (int value : old) {
+      if (value != 0) {
+        int slot = slot(value);
+        while (table[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+      }
+    }
+  }
+
+  private int slot(final int value) {
+    // Fibonacci hashing spreads consecutive sums over the whole table
+    return (value * 0x9E3779B9) >>> (Integer.numberOfLeadingZeros(mask)) & mask;
+  }
+
+  private static int tableSizeFor(final int expectedSize) {
+    long wanted = Math.max(DEFAULT_CAPACITY, 2L * expectedSize);
+    return (int) Math.min(MAX_CAPACITY, Long.highestOneBit(wanted - 1) << 1);
+  }
+}
@@ -0,0 +1,310 @@
+package adventofcode.y2018;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import lombok.Value;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read-only view of an input file through {@link FileChannel#map}: nothing is copied on the heap up front.
+ * Files bigger than 2GB are mapped one region at a time, a line never spans two regions.
+ * <p>
+ * Lines are exposed either as lazily decoded Strings or as raw byte slices, without line terminators.
+ */
+public final class MappedInput implements Closeable {
+
+  @Nested
+  public static class MappedInputTest {
+
+    @Test
+    public void linesMatchReadLines() throws IOException {
+      Path file = write("+1\n-2\r\n+3\n\n+1");
+      try (MappedInput input = new MappedInput(file, 4)) {
+        assertThat(input.lines().collect(toList())).containsExactly("+1", "-2", "+3", "", "+1");
+      }
+    }
+
+    @Test
+    public void trailingNewlineDoesNotAddALine() throws IOException {
+      Path file = write("abc\ndef\n");
+      try (MappedInput input = MappedInput.open(file)) {
+        assertThat(input.lines().collect(toList())).containsExactly("abc", "def");
+      }
+    }
+
+    @Test
+    public void forEachLineAcrossRegions() throws IOException {
+      Path file = write("aA\nabBA\naabAAB\n");
+      try (MappedInput input = new MappedInput(file, 8)) {
+        StringBuilder lengths = new StringBuilder();
+        input.forEachLine(line -> lengths.append(line.remaining()).append(' '));
+        assertThat(lengths.toString()).isEqualTo("2 4 6 ");
+      }
+    }
+
+    @Test
+    public void lineLongerThanRegionIsRejected() throws IOException {
+      Path file = write("abcdefgh\n");
+      try (MappedInput input = new MappedInput(file, 4)) {
+        assertThatThrownBy(() -> input.lines().count()).isInstanceOf(IllegalStateException.class);
+      }
+    }
+
+    @Test
+    public void chunksCoverEveryLineOnce() throws IOException {
+      Path file = write("+1\n-2\n+3\n+1\n+10\n-100\n+1000\n");
+      try (MappedInput input = new MappedInput(file, 8)) {
+        for (int count = 1; count < 12; count++) {
+          List<String> lines = new ArrayList<>();
+          for (Chunk chunk : input.split(count)) {
+            input.forEachLine(chunk, line -> lines.add(UTF_8.decode(line).toString()));
+          }
+          assertThat(lines).as("%s chunks", count).containsExactly("+1", "-2", "+3", "+1", "+10", "-100", "+1000");
+        }
+      }
+    }
+
+    @Test
+    public void bundledInputs() {
+      try (MappedInput input = Inputs.mappedForDay("1")) {
+        assertThat(input.lines().collect(toList())).isEqualTo(Inputs.forDay("1"));
+      }
+    }
+
+    private static Path write(final String content) throws IOException {
+      Path result = Files.createTempFile("mapped-input", ".txt");
+      result.toFile().deleteOnExit();
+      return Files.write(result, content.getBytes(UTF_8));
+    }
+  }
+
+  private static final long DEFAULT_REGION_SIZE = 1L << 30;
+  private static final int SCAN_BUFFER_SIZE = 4096;
+
+  private final FileChannel channel;
+  private final long regionSize;
+  private final long size;
+
+  MappedInput(final Path path, final long regionSize) {
+    checkArgument(regionSize > 0 && regionSize <= Integer.MAX_VALUE, "Invalid region size: %s", regionSize);
+    try {
+      this.channel = FileChannel.open(path, StandardOpenOption.READ);
+      this.size = channel.size();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Unable to read the input " + path, e);
+    }
+    this.regionSize = regionSize;
+  }
+
+  public static MappedInput open(final Path path) {
+    return new MappedInput(path, DEFAULT_REGION_SIZE);
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Calls {@code action} with every line as a read-only slice of the mapped file.
+   * The same buffer is reused for all the lines: consume it, do not keep it.
+   */
+  public void forEachLine(final Consumer<ByteBuffer> action) {
+    LineCursor cursor = new LineCursor(0, size);
+    while (cursor.next()) {
+      action.accept(cursor.line());
+    }
+  }
+
+  /**
+   * Calls {@code action} with every line of the chunk, see {@link #forEachLine(Consumer)}.
+   */
+  public void forEachLine(final Chunk chunk, final Consumer<ByteBuffer> action) {
+    LineCursor cursor = new LineCursor(chunk.getStart(), chunk.getEnd());
+    while (cursor.next()) {
+      action.accept(cursor.line());
+    }
+  }
+
+  /**
+   * Splits the file into at most {@code count} byte ranges of about the same size.
+   * Every range but the first starts right after a newline, so each line belongs to exactly one chunk.
+   */
+  public List<Chunk> split(final int count) {
+    checkArgument(count > 0, "Invalid number of chunks: %s", count);
+    List<Chunk> result = new ArrayList<>();
+    long start = 0;
+    for (int k = 1; k <= count && start < size; k++) {
+      long end = k == count ? size : lineStartFrom(size / count * k);
+      if (end > start) {
+        result.add(new Chunk(start, end));
+        start = end;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Lazily decoded lines, like {@link Inputs#forDay} but without holding them all in memory.
+   */
+  public Stream<String> lines() {
+    LineCursor cursor = new LineCursor(0, size);
+    Iterator<String> iterator = new Iterator<String>() {
+      private Boolean hasNext;
+
+      @Override
+      public boolean hasNext() {
+        if (hasNext == null) {
+          hasNext = cursor.next();
+        }
+        return hasNext;
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        hasNext = null;
+        return UTF_8.decode(cursor.line()).toString();
+      }
+    };
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                                false);
+  }
+
+  public long size() {
+    return size;
+  }
+
+  /**
+   * First offset at or after {@code offset} that starts a line.
+   */
+  private long lineStartFrom(final long offset) {
+    if (offset == 0) {
+      return 0;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+    long position = offset - 1;
+    try {
+      while (position < size) {
+        buffer.clear();
+        int read = channel.read(buffer, position);
+        for (int i = 0; i < read; i++) {
+          if (buffer.get(i) == '\n') {
+            return position + i + 1;
+          }
+        }
+        position += read;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return size;
+  }
+
+  /**
+   * Byte range [start, end) of the file.
+   */
+  @Value
+  public static class Chunk {
+    private long start;
+    private long end;
+  }
+
+  /**
+   * Walks the lines of the byte range [start, end), mapping one region of the file at a time.
+   */
+  final class LineCursor {
+    private final long end;
+    private MappedByteBuffer region;
+    private ByteBuffer view;
+    private long regionStart;
+    private int position;
+
+    LineCursor(final long start, final long end) {
+      this.end = end;
+      this.regionStart = start;
+      remap();
+    }
+
+    /**
+     * Moves to the next line, returns false when the range is over.
+     */
+    boolean next() {
+      if (regionStart + position >= end) {
+        return false;
+      }
+      int newline = findNewline();
+      if (newline < 0 && regionStart + region.limit() < end) {
+        regionStart += position;
+        remap();
+        newline = findNewline();
+        checkState(newline >= 0 || regionStart + region.limit() >= end,
+                   "Line at offset %s is longer than %s bytes", regionStart, regionSize);
+      }
+      int lineEnd = newline < 0 ? region.limit() : newline;
+      int contentEnd = lineEnd > position && region.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+      view.clear();
+      view.limit(contentEnd).position(position);
+      position = newline < 0 ? region.limit() : newline + 1;
+      return true;
+    }
+
+    /**
+     * Read-only view on the current line, the same instance is repositioned by {@link #next()}.
+     */
+    ByteBuffer line() {
+      return view;
+    }
+
+    private int findNewline() {
+      for (int i = position; i < region.limit(); i++) {
+        if (region.get(i) == '\n') {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private void remap() {
+      try {
+        region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, Math.min(regionSize, end - regionStart));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      view = region.asReadOnlyBuffer();
+      position = 0;
+    }
+  }
+}
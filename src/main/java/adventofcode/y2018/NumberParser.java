@@ -0,0 +1,292 @@
+package adventofcode.y2018;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Allocation free parsing of signed decimal ints ({@code 6}, {@code +6}, {@code -3}) straight from chars or bytes,
+ * without going through {@link Integer#parseInt} and boxing.
+ */
+public final class NumberParser {
+
+  @Nested
+  public static class NumberParserTest {
+
+    static Stream<Arguments> parseIntTest() {
+      return Stream.of(
+        arguments("0", 0),
+        arguments("+6", 6),
+        arguments("-3", -3),
+        arguments("123456", 123456),
+        arguments("-2147483648", Integer.MIN_VALUE),
+        arguments("+2147483647", Integer.MAX_VALUE)
+      );
+    }
+
+    static Stream<Arguments> parseIntsTest() {
+      return Stream.of(
+        arguments("2 3 0 3 10 11 12 1 1 0 1 99 2 1 1 2", new int[]{2, 3, 0, 3, 10, 11, 12, 1, 1, 0, 1, 99, 2, 1, 1, 2}),
+        arguments("+1, -2, +3, +1", new int[]{1, -2, 3, 1}),
+        arguments("  -7  ", new int[]{-7}),
+        arguments("", new int[0])
+      );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    public void parseIntTest(final String input, final int expected) {
+      assertThat(parseInt(input)).isEqualTo(expected);
+      assertThat(parseInt(ByteBuffer.wrap(input.getBytes()))).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    public void parseIntsTest(final String input, final int[] expected) {
+      assertThat(parseInts(input)).isEqualTo(expected);
+      assertThat(parseInts(ByteBuffer.wrap(input.getBytes()))).isEqualTo(expected);
+    }
+
+    @Test
+    public void parseLines() {
+      List<String> lines = asList("+1", "-2", "+3", "+1");
+      assertThat(parseInts(lines)).containsExactly(1, -2, 3, 1);
+    }
+
+    @Test
+    public void parseMappedLines() {
+      try (MappedInput input = Inputs.mappedForDay("1")) {
+        assertThat(parseInts(input)).isEqualTo(parseInts(Inputs.forDay("1")));
+      }
+    }
+
+    @Test
+    public void invalidNumbers() {
+      for (String input : asList("", "+", "-", "1a", "a1", "--1", "2147483648", "-2147483649", "99999999999")) {
+        assertThatThrownBy(() -> parseInt(input)).as(input)
+                                                 .isInstanceOf(NumberFormatException.class)
+                                                 .hasMessageContaining(input);
+        assertThatThrownBy(() -> parseInt(ByteBuffer.wrap(input.getBytes()))).as(input)
+                                                                            .isInstanceOf(NumberFormatException.class)
+                                                                            .hasMessageContaining(input);
+      }
+    }
+
+    @Test
+    public void outOfRangeNumbers() {
+      for (String input : asList("2147483648", "-2147483649", "99999999999")) {
+        assertThatThrownBy(() -> parseInts("1 " + input + " 2")).as(input)
+                                                                .isInstanceOf(NumberFormatException.class)
+                                                                .hasMessageContaining(input);
+        assertThatThrownBy(() -> parseInts(ByteBuffer.wrap(("1 " + input + " 2").getBytes()))).as(input)
+                                                                                            .isInstanceOf(NumberFormatException.class)
+                                                                                            .hasMessageContaining(input);
+      }
+    }
+  }
+
+  private NumberParser() {
+  }
+
+  /**
+   * Parses the whole sequence as a single signed int.
+   */
+  static int parseInt(final CharSequence input) {
+    int length = input.length();
+    int i = 0;
+    boolean negative = false;
+    if (length > 0 && (input.charAt(0) == '+' || input.charAt(0) == '-')) {
+      negative = input.charAt(0) == '-';
+      i++;
+    }
+    if (i == length) {
+      throw invalid(input);
+    }
+    // accumulate negatively to reach Integer.MIN_VALUE, checking the limit like Integer.parseInt
+    int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+    int multiplyMin = limit / 10;
+    int result = 0;
+    for (; i < length; i++) {
+      int digit = input.charAt(i) - '0';
+      if (digit < 0 || digit > 9 || result < multiplyMin || result * 10 < limit + digit) {
+        throw invalid(input);
+      }
+      result = result * 10 - digit;
+    }
+    return negative ? result : -result;
+  }
+
+  /**
+   * Parses the remaining bytes of the buffer as a single signed int, without moving its position.
+   */
+  static int parseInt(final ByteBuffer input) {
+    int limit = input.limit();
+    int i = input.position();
+    boolean negative = false;
+    if (i < limit && (input.get(i) == '+' || input.get(i) == '-')) {
+      negative = input.get(i) == '-';
+      i++;
+    }
+    if (i == limit) {
+      throw invalid(input);
+    }
+    int min = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+    int multiplyMin = min / 10;
+    int result = 0;
+    for (; i < limit; i++) {
+      int digit = input.get(i) - '0';
+      if (digit < 0 || digit > 9 || result < multiplyMin || result * 10 < min + digit) {
+        throw invalid(input);
+      }
+      result = result * 10 - digit;
+    }
+    return negative ? result : -result;
+  }
+
+  /**
+   * One int per line.
+   */
+  static int[] parseInts(final List<String> lines) {
+    int[] result = new int[lines.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = parseInt(lines.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * One int per line of a mapped input, no String is created along the way.
+   */
+  static int[] parseInts(final MappedInput input) {
+    IntArray result = new IntArray();
+    input.forEachLine(line -> result.add(parseInt(line)));
+    return result.toArray();
+  }
+
+  /**
+   * All the signed ints of the sequence, whatever separates them (spaces, commas, ...).
+   */
+  static int[] parseInts(final CharSequence input) {
+    IntArray result = new IntArray();
+    int length = input.length();
+    int i = 0;
+    while (i < length) {
+      char c = input.charAt(i);
+      boolean sign = (c == '+' || c == '-') && i + 1 < length && isDigit(input.charAt(i + 1));
+      if (!sign && !isDigit(c)) {
+        i++;
+        continue;
+      }
+      boolean negative = c == '-';
+      int start = i;
+      if (sign) {
+        i++;
+      }
+      int min = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+      int multiplyMin = min / 10;
+      int value = 0;
+      while (i < length && isDigit(input.charAt(i))) {
+        int digit = input.charAt(i++) - '0';
+        if (value < multiplyMin || value * 10 < min + digit) {
+          while (i < length && isDigit(input.charAt(i))) {
+            i++;
+          }
+          throw invalid(input.subSequence(start, i));
+        }
+        value = value * 10 - digit;
+      }
+      result.add(negative ? value : -value);
+    }
+    return result.toArray();
+  }
+
+  /**
+   * All the signed ints between position and limit of the buffer, whatever separates them.
+   */
+  static int[] parseInts(final ByteBuffer input) {
+    IntArray result = new IntArray();
+    int limit = input.limit();
+    int i = input.position();
+    while (i < limit) {
+      byte c = input.get(i);
+      boolean sign = (c == '+' || c == '-') && i + 1 < limit && isDigit(input.get(i + 1));
+      if (!sign && !isDigit(c)) {
+        i++;
+        continue;
+      }
+      boolean negative = c == '-';
+      int start = i;
+      if (sign) {
+        i++;
+      }
+      int min = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+      int multiplyMin = min / 10;
+      int value = 0;
+      while (i < limit && isDigit(input.get(i))) {
+        int digit = input.get(i++) - '0';
+        if (value < multiplyMin || value * 10 < min + digit) {
+          while (i < limit && isDigit(input.get(i))) {
+            i++;
+          }
+          ByteBuffer number = input.duplicate();
+          number.limit(i).position(start);
+          throw invalid(number);
+        }
+        value = value * 10 - digit;
+      }
+      result.add(negative ? value : -value);
+    }
+    return result.toArray();
+  }
+
+  private static NumberFormatException invalid(final CharSequence input) {
+    return new NumberFormatException(String.format("Input [%s] is not a number", input));
+  }
+
+  private static NumberFormatException invalid(final ByteBuffer input) {
+    byte[] bytes = new byte[input.remaining()];
+    input.duplicate().get(bytes);
+    return invalid(new String(bytes));
+  }
+
+  private static boolean isDigit(final int c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * Growable int[], to avoid a List<Integer> when the count is not known up front.
+   */
+  static final class IntArray {
+    private int[] values = new int[16];
+    private int size;
+
+    void add(final int value) {
+      if (size == values.length) {
+        checkArgument(size < Integer.MAX_VALUE - 8, "Too many values");
+        values = Arrays.copyOf(values, (int) Math.min(Integer.MAX_VALUE - 8, 2L * size));
+      }
+      values[size++] = value;
+    }
+
+    int size() {
+      return size;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
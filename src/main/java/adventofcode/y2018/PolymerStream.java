@@ -0,0 +1,239 @@
+package adventofcode.y2018;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Day 5 reduction of a polymer of any size, read from a channel one buffer at a time.
+ * <p>
+ * Only the reduction stack is kept: its top lives in memory, the bottom spills to a temporary file when the memory
+ * is full and is read back when the top runs out. Line terminators and other whitespace are skipped.
+ */
+public final class PolymerStream {
+
+  @Nested
+  public static class PolymerStreamTest {
+
+    @Test
+    public void examples() {
+      PolymerStream stream = new PolymerStream(4, 4);
+      assertThat(stream.reduce(channel("dabAcCaCBAcCcaDA\n"))).isEqualTo(10);
+      assertThat(stream.reduce(channel("abBA"))).isEqualTo(0);
+      assertThat(stream.reduce(channel(""))).isEqualTo(0);
+    }
+
+    @Test
+    public void spillsAndReloads() {
+      for (long seed = 0; seed < 5; seed++) {
+        StringBuilder polymer = new StringBuilder();
+        Generators.polymer(seed, 20_000, polymer);
+        String expected = new Day5(asList(polymer.toString())).reducePolymer(polymer.toString());
+
+        for (int memory : new int[]{2, 3, 16, 1 << 20}) {
+          ByteArrayOutputStream reduced = new ByteArrayOutputStream();
+          long length = new PolymerStream(7, memory).reduce(channel(polymer.toString()), Channels.newChannel(reduced));
+          assertThat(length).as("seed %s memory %s", seed, memory).isEqualTo(expected.length());
+          assertThat(new String(reduced.toByteArray(), US_ASCII)).as("seed %s memory %s", seed, memory)
+                                                                 .isEqualTo(expected);
+        }
+      }
+    }
+
+    @Test
+    public void polymerFile() throws IOException {
+      Path file = Files.createTempFile("day-5", ".txt");
+      file.toFile().deleteOnExit();
+      Generators.write(out -> Generators.polymer(42, 100_000, out), file);
+
+      String polymer = Files.readAllLines(file).get(0);
+      assertThat(String.valueOf(Day5.reducedLength(file))).isEqualTo(new Day5(asList(polymer)).part1());
+    }
+
+    private static ReadableByteChannel channel(final String content) {
+      return Channels.newChannel(new ByteArrayInputStream(content.getBytes(US_ASCII)));
+    }
+  }
+
+  private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+  private static final int DEFAULT_MEMORY = 1 << 26;
+  private static final int INITIAL_MEMORY = 1 << 12;
+
+  private final int bufferSize;
+  private final int memory;
+
+  public PolymerStream() {
+    this(DEFAULT_BUFFER_SIZE, DEFAULT_MEMORY);
+  }
+
+  /**
+   * @param bufferSize bytes read from the channel at a time
+   * @param memory     units of the stack kept in memory before spilling to disk
+   */
+  public PolymerStream(final int bufferSize, final int memory) {
+    checkArgument(bufferSize > 0, "Invalid buffer size: %s", bufferSize);
+    checkArgument(memory > 1, "At least two units of memory are needed: %s", memory);
+    this.bufferSize = bufferSize;
+    this.memory = memory;
+  }
+
+  /**
+   * Length of the reduced polymer.
+   */
+  public long reduce(final ReadableByteChannel input) {
+    return reduce(input, null);
+  }
+
+  /**
+   * Length of the reduced polymer, which is also written to {@code output} unless it is null.
+   */
+  public long reduce(final ReadableByteChannel input, final WritableByteChannel output) {
+    ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+    byte[] bytes = buffer.array();
+    try (SpillingStack stack = new SpillingStack(memory)) {
+      while (input.read(buffer) >= 0) {
+        for (int i = 0; i < buffer.position(); i++) {
+          byte unit = bytes[i];
+          if (Character.isWhitespace(unit)) {
+            continue;
+          }
+          if (!stack.isEmpty() && Day5.reacts(stack.top(), unit)) {
+            stack.pop();
+          } else {
+            stack.push(unit);
+          }
+        }
+        buffer.clear();
+      }
+      if (output != null) {
+        stack.writeTo(output);
+      }
+      return stack.size();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Stack of units whose top {@code memory} units at most are on the heap, the heap part growing on demand.
+   * When it is full, its bottom half is appended to the spill file; when it is empty, the last half-memory worth
+   * of units is read back.
+   */
+  private static final class SpillingStack implements Closeable {
+    private final int half;
+    private final int memory;
+    private FileChannel spill;
+    private long spilled;
+    private int size;
+    private byte[] units;
+
+    SpillingStack(final int memory) {
+      this.memory = memory;
+      this.half = memory / 2;
+      this.units = new byte[Math.min(memory, INITIAL_MEMORY)];
+    }
+
+    boolean isEmpty() {
+      return size == 0 && spilled == 0;
+    }
+
+    long size() {
+      return spilled + size;
+    }
+
+    byte top() throws IOException {
+      if (size == 0) {
+        reload();
+      }
+      return units[size - 1];
+    }
+
+    void pop() throws IOException {
+      if (size == 0) {
+        reload();
+      }
+      size--;
+    }
+
+    void push(final byte unit) throws IOException {
+      if (size == units.length) {
+        if (units.length < memory) {
+          units = Arrays.copyOf(units, (int) Math.min(memory, 2L * units.length));
+        } else {
+          spillHalf();
+        }
+      }
+      units[size++] = unit;
+    }
+
+    /**
+     * Spilled units first, from the bottom of the stack, then the ones in memory.
+     */
+    void writeTo(final WritableByteChannel output) throws IOException {
+      if (spilled > 0) {
+        long position = 0;
+        while (position < spilled) {
+          position += spill.transferTo(position, spilled - position, output);
+        }
+      }
+      ByteBuffer top = ByteBuffer.wrap(units, 0, size);
+      while (top.hasRemaining()) {
+        output.write(top);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (spill != null) {
+        spill.close();
+      }
+    }
+
+    private void spillHalf() throws IOException {
+      if (spill == null) {
+        Path file = Files.createTempFile("polymer-stack", ".bin");
+        spill = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                 StandardOpenOption.DELETE_ON_CLOSE);
+      }
+      ByteBuffer bottom = ByteBuffer.wrap(units, 0, half);
+      while (bottom.hasRemaining()) {
+        spilled += spill.write(bottom, spilled);
+      }
+      System.arraycopy(units, half, units, 0, size - half);
+      size -= half;
+    }
+
+    private void reload() throws IOException {
+      int count = (int) Math.min(half, spilled);
+      ByteBuffer target = ByteBuffer.wrap(units, 0, count);
+      long position = spilled - count;
+      while (target.hasRemaining()) {
+        int read = spill.read(target, position + target.position());
+        if (read < 0) {
+          throw new IOException("Spill file is shorter than " + spilled + " bytes");
+        }
+      }
+      spilled -= count;
+      size = count;
+    }
+  }
+}